@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the {@link EvictableCompletableFutureCache} and the
+ * {@link ShardedCompletableFutureCache}. Run with increasing number of threads, for instance {@code -t 1,2,4,8}, to
+ * compare how the throughput scales with the number of cores.
+ *
+ * The tasks of the {@code evictable} and {@code sharded} caches are being executed on the calling thread, so that the
+ * benchmarks are measuring the cache itself rather than the executor. The {@code sharded-executors} cache runs the
+ * tasks of every shard on the shard's own single threaded executor, the misses are then waiting for the load to
+ * complete before invalidating the key.
+ *
+ * @author Jakub Narloch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompletableFutureCacheBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"evictable", "sharded", "sharded-executors"})
+    private String cache;
+
+    private CompletableFutureCache<Long, Long> instance;
+
+    private ExecutorService[] executors = new ExecutorService[0];
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if ("sharded-executors".equals(cache)) {
+            final ThreadFactory threads = new ThreadFactoryBuilder().setDaemon(true).build();
+            executors = new ExecutorService[Runtime.getRuntime().availableProcessors()];
+            Arrays.setAll(executors, (shard) -> Executors.newSingleThreadExecutor(threads));
+            instance = new ShardedCompletableFutureCache<>(executors.length, (shard) -> executors[shard],
+                    10, TimeUnit.MINUTES);
+        } else if ("sharded".equals(cache)) {
+            instance = new ShardedCompletableFutureCache<>(Runnable::run, 10, TimeUnit.MINUTES);
+        } else {
+            instance = new EvictableCompletableFutureCache<>(Runnable::run, 10, TimeUnit.MINUTES);
+        }
+        for (long key = 0; key < KEYS; key++) {
+            final Long value = key;
+            instance.supply(key, () -> value).join();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        instance.invalidateAll();
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> hit() {
+        return instance.get((long) ThreadLocalRandom.current().nextInt(KEYS));
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> missAndInvalidate(ThreadKeys keys) {
+        final Long key = keys.next();
+        final CompletableFuture<Long> future = instance.supply(key, () -> key);
+        future.join();
+        instance.invalidate(key);
+        return future;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        private long base;
+
+        private long next;
+
+        @Setup
+        public void setUp() {
+            base = Thread.currentThread().getId() << 32;
+        }
+
+        Long next() {
+            return base + (next++ & (KEYS - 1)) + KEYS;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Chooses the expiration time of the cache entries, within the configured bounds, based on how often the entries are
+ * being hit and how long it takes to load them.
+ *
+ * The statistics are being gathered per key class. For every class the expiry estimates the backend time saved per
+ * each second the entry remains cached, that is the number of hits per second of residency multiplied by the average
+ * load latency. The classes saving more than the average are kept closer to the maximum duration, while the ones
+ * that are rarely hit or cheap to load are expiring closer to the minimum duration, so that the memory is spent on
+ * the entries that are saving the most of the backend time.
+ *
+ * The statistics are decaying over time, so that the durations are following the changes in the traffic.
+ *
+ * Optionally the expiry can be given the memory budget, as the target number of the cached entries. As long as the
+ * cache holds more entries than the budget, the durations above the minimum are being gradually scaled down, and
+ * once the cache falls below the budget they are being scaled back up. The minimum duration takes precedence over the
+ * budget, the cache can exceed the budget when the entries loaded within the minimum duration don't fit in it.
+ *
+ * @param <K> the key type
+ * @author Jakub Narloch
+ * @see EvictableCompletableFutureCache
+ */
+public final class AdaptiveExpiry<K> {
+
+    private static final int MAX_KEY_CLASSES = 10000;
+
+    private static final double SMOOTHING = 0.1;
+
+    private static final double BUDGET_SMOOTHING = 0.01;
+
+    private final long minDuration;
+
+    private final long maxDuration;
+
+    private final Function<? super K, ?> classifier;
+
+    private final Ticker ticker;
+
+    private final long maxEntries;
+
+    private final LoadingCache<Object, KeyClassStats> stats;
+
+    private volatile double averageSavings;
+
+    private volatile double scale = 1;
+
+    /**
+     * Creates new instance of {@link AdaptiveExpiry} gathering the statistics for every key.
+     *
+     * @param minDuration the minimum duration after which the entries will be evicted
+     * @param maxDuration the maximum duration after which the entries will be evicted
+     * @param unit        the time unit
+     * @throws IllegalArgumentException if {@code minDuration} is negative or greater than {@code maxDuration}
+     */
+    public AdaptiveExpiry(long minDuration, long maxDuration, TimeUnit unit) {
+        this(minDuration, maxDuration, unit, Function.identity());
+    }
+
+    /**
+     * Creates new instance of {@link AdaptiveExpiry} gathering the statistics for every key class.
+     *
+     * @param minDuration the minimum duration after which the entries will be evicted
+     * @param maxDuration the maximum duration after which the entries will be evicted
+     * @param unit        the time unit
+     * @param classifier  the function mapping the key to it's class
+     * @throws IllegalArgumentException if {@code minDuration} is negative or greater than {@code maxDuration}
+     */
+    public AdaptiveExpiry(long minDuration, long maxDuration, TimeUnit unit, Function<? super K, ?> classifier) {
+        this(minDuration, maxDuration, unit, classifier, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates new instance of {@link AdaptiveExpiry} gathering the statistics for every key class, with the memory
+     * budget.
+     *
+     * @param minDuration the minimum duration after which the entries will be evicted
+     * @param maxDuration the maximum duration after which the entries will be evicted
+     * @param unit        the time unit
+     * @param classifier  the function mapping the key to it's class
+     * @param maxEntries  the target number of the cached entries
+     * @throws IllegalArgumentException if {@code minDuration} is negative or greater than {@code maxDuration}
+     *                                  or {@code maxEntries} is not positive
+     */
+    public AdaptiveExpiry(long minDuration, long maxDuration, TimeUnit unit, Function<? super K, ?> classifier,
+                          long maxEntries) {
+        this(minDuration, maxDuration, unit, classifier, maxEntries, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates new instance of {@link AdaptiveExpiry} measuring the time through the given ticker.
+     *
+     * @param minDuration the minimum duration after which the entries will be evicted
+     * @param maxDuration the maximum duration after which the entries will be evicted
+     * @param unit        the time unit
+     * @param classifier  the function mapping the key to it's class
+     * @param maxEntries  the target number of the cached entries
+     * @param ticker      the ticker
+     */
+    AdaptiveExpiry(long minDuration, long maxDuration, TimeUnit unit, Function<? super K, ?> classifier,
+                   long maxEntries, Ticker ticker) {
+        if (minDuration < 0 || minDuration > maxDuration) {
+            throw new IllegalArgumentException("The minimum duration must be non negative and not greater than "
+                    + "the maximum duration");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.minDuration = unit.toNanos(minDuration);
+        this.maxDuration = unit.toNanos(maxDuration);
+        this.classifier = classifier;
+        this.ticker = ticker;
+        this.stats = CacheBuilder.newBuilder()
+                .maximumSize(MAX_KEY_CLASSES)
+                .build(CacheLoader.from(() -> new KeyClassStats(ticker.read())));
+    }
+
+    /**
+     * Returns the most recently chosen expiration time of every key class.
+     *
+     * @param unit the time unit
+     * @return the expiration times per key class
+     */
+    public Map<Object, Long> getDurations(TimeUnit unit) {
+        final Map<Object, Long> durations = new HashMap<>();
+        for (Map.Entry<Object, KeyClassStats> entry : stats.asMap().entrySet()) {
+            durations.put(entry.getKey(), unit.convert(entry.getValue().duration, TimeUnit.NANOSECONDS));
+        }
+        return durations;
+    }
+
+    /**
+     * Returns the maximum expiration time.
+     *
+     * @return the maximum duration in nanoseconds
+     */
+    long maxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * Returns the ticker used for measuring the time.
+     *
+     * @return the ticker
+     */
+    Ticker ticker() {
+        return ticker;
+    }
+
+    /**
+     * Records the access to the given key.
+     *
+     * @param key the key
+     */
+    void recordAccess(K key) {
+        stats(key).accesses.increment();
+    }
+
+    /**
+     * Records the load of the given key and chooses the expiration time of the loaded entry.
+     *
+     * @param key     the key
+     * @param latency the load latency in nanoseconds
+     * @param entries the number of the currently cached entries
+     * @return the expiration time in nanoseconds
+     */
+    long recordLoad(K key, long latency, long entries) {
+        final KeyClassStats keyClass = stats(key);
+        final double savings = keyClass.loaded(ticker.read(), latency);
+        final double average = averageSavings + SMOOTHING * (savings - averageSavings);
+        averageSavings = average;
+
+        final double ratio = savings > 0 ? savings / (savings + average) : 0;
+        final long duration = minDuration + Math.round((maxDuration - minDuration) * ratio * scale(entries));
+        keyClass.resided(duration);
+        return duration;
+    }
+
+    /**
+     * Adjusts the scale of the durations by the small power of the ratio between the budget and the number
+     * of the cached entries, so that the scale converges towards the value keeping the cache within the budget.
+     */
+    private double scale(long entries) {
+        if (maxEntries == Long.MAX_VALUE) {
+            return 1;
+        }
+        final double adjusted = scale * Math.pow((double) maxEntries / Math.max(1, entries), BUDGET_SMOOTHING);
+        final double bounded = Math.min(1, adjusted);
+        scale = bounded;
+        return bounded;
+    }
+
+    private KeyClassStats stats(K key) {
+        return stats.getUnchecked(classifier.apply(key));
+    }
+
+    private final class KeyClassStats {
+
+        private final LongAdder accesses = new LongAdder();
+
+        private long windowStart;
+
+        private double accessed;
+
+        private double loads;
+
+        private double residency;
+
+        private double latency;
+
+        private volatile long duration;
+
+        KeyClassStats(long now) {
+            this.windowStart = now;
+        }
+
+        synchronized double loaded(long now, long loadLatency) {
+            if (now - windowStart > 2 * maxDuration) {
+                accessed /= 2;
+                loads /= 2;
+                residency /= 2;
+                windowStart = now;
+            }
+            accessed += accesses.sumThenReset();
+            loads++;
+            latency = loads <= 1 ? loadLatency : latency + SMOOTHING * (loadLatency - latency);
+
+            final double hits = Math.max(0, accessed - loads);
+            return residency > 0 ? hits / residency * latency : 0;
+        }
+
+        synchronized void resided(long duration) {
+            this.residency += duration;
+            this.duration = duration;
+        }
+    }
+}
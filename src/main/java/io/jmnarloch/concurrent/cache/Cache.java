@@ -58,8 +58,9 @@ interface Cache<K, V> {
      *
      * @param key   the key to associated the value with
      * @param value the value to store
+     * @return the previously associated value, or null if the value has been stored
      */
-    void putIfAbsent(K key, V value);
+    V putIfAbsent(K key, V value);
 
     /**
      * Associated the result of computation with the specified key, only if no previous value hasn't been stored.
@@ -94,6 +95,15 @@ interface Cache<K, V> {
      */
     V remove(K key);
 
+    /**
+     * Removes the entry associated with the specified key, only if it is currently associated with the given value.
+     *
+     * @param key   the key
+     * @param value the expected value
+     * @return whether the entry has been removed
+     */
+    boolean remove(K key, V value);
+
     /**
      * Replaces the previous value associated with given key and returns whether the operation succeeded.
      *
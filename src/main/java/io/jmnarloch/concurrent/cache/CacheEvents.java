@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+/**
+ * Emits the cache diagnostic events. This is a no-op implementation used on the Java 8 runtime, on Java 11 and later
+ * it is being replaced through the multi-release jar by the implementation that emits JDK Flight Recorder events.
+ *
+ * @author Jakub Narloch
+ */
+final class CacheEvents {
+
+    private CacheEvents() {
+    }
+
+    /**
+     * Records the start of the load of the value associated with the given key.
+     *
+     * @param key the key
+     * @return the load being recorded
+     */
+    static Load loadStarted(Object key) {
+        return Load.DISABLED;
+    }
+
+    /**
+     * Records the caller joining the load that is already in flight.
+     *
+     * @param key the key
+     */
+    static void joined(Object key) {
+    }
+
+    /**
+     * Records the eviction of the entry.
+     *
+     * @param key   the key
+     * @param cause the cause of the eviction
+     */
+    static void evicted(Object key, String cause) {
+    }
+
+    /**
+     * Records the start of the invalidation of all entries.
+     *
+     * @return the sweep being recorded
+     */
+    static Sweep invalidateAllStarted() {
+        return Sweep.DISABLED;
+    }
+
+    /**
+     * The load being recorded.
+     */
+    static class Load {
+
+        static final Load DISABLED = new Load();
+
+        /**
+         * Records the end of the load.
+         *
+         * @param failure the load failure, or null if the load succeeded
+         */
+        void completed(Throwable failure) {
+        }
+    }
+
+    /**
+     * The invalidation of all entries being recorded.
+     */
+    static class Sweep {
+
+        static final Sweep DISABLED = new Sweep();
+
+        /**
+         * Records the end of the invalidation.
+         *
+         * @param entries the number of invalidated entries
+         */
+        void completed(long entries) {
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Records the dependencies between the cache entries. For every key the graph holds the keys it has been computed
+ * from and the reverse edges pointing to the keys that have been computed from it.
+ *
+ * The graph does not retain the keys on it's own: the key is being released as soon as it's entry is no longer
+ * cached and no other key depends on it, so the size of the graph is bounded by the number of the cached entries
+ * and their transitive dependencies.
+ *
+ * @param <K> the key type
+ * @author Jakub Narloch
+ */
+final class DependencyGraph<K> {
+
+    private final ConcurrentMap<K, Set<K>> dependencies = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<K, Set<K>> dependents = new ConcurrentHashMap<>();
+
+    private final Predicate<K> cached;
+
+    /**
+     * Creates new instance of {@link DependencyGraph}.
+     *
+     * @param cached the predicate testing whether the entry associated with the key is still cached
+     */
+    DependencyGraph(Predicate<K> cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Returns whether the graph does not contain any dependencies.
+     *
+     * @return true if graph is empty
+     */
+    boolean isEmpty() {
+        return dependencies.isEmpty() && dependents.isEmpty();
+    }
+
+    /**
+     * Records that the dependent key has been computed from the dependency.
+     *
+     * @param dependent  the dependent key
+     * @param dependency the dependency key
+     */
+    synchronized void add(K dependent, K dependency) {
+        dependencies.computeIfAbsent(dependent, (k) -> new HashSet<>()).add(dependency);
+        dependents.computeIfAbsent(dependency, (k) -> new HashSet<>()).add(dependent);
+    }
+
+    /**
+     * Removes the invalidated key together with all of it's transitive dependents.
+     *
+     * @param key the invalidated key
+     * @return the transitive dependents that need to be invalidated
+     */
+    synchronized Set<K> invalidate(K key) {
+        final Set<K> stale = dependentsOf(key, null);
+        for (K dependent : stale) {
+            remove(dependent);
+        }
+        remove(key);
+        return stale;
+    }
+
+    /**
+     * Removes the transitive dependents of the key being reloaded, together with the dependencies of it's previous
+     * value. The dependent that is triggering the load is not stale, since it's going to be computed from the
+     * reloaded value, so it's being retained together with it's dependency on the key.
+     *
+     * @param key       the reloaded key
+     * @param requester the dependent key that triggered the load, or null
+     * @return the transitive dependents that need to be invalidated
+     */
+    synchronized Set<K> reload(K key, K requester) {
+        final Set<K> stale = dependentsOf(key, requester);
+        for (K dependent : stale) {
+            remove(dependent);
+        }
+        final Set<K> previous = dependents.remove(key);
+        if (previous != null && requester != null && previous.contains(requester)) {
+            final Set<K> retained = new HashSet<>();
+            retained.add(requester);
+            dependents.put(key, retained);
+        }
+        removeDependencies(key);
+        return stale;
+    }
+
+    /**
+     * Releases the key that is no longer cached, unless any other key still depends on it.
+     *
+     * @param key the key
+     */
+    synchronized void release(K key) {
+        if (!dependents.containsKey(key) && !cached.test(key)) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes all of the dependencies.
+     */
+    synchronized void clear() {
+        dependencies.clear();
+        dependents.clear();
+    }
+
+    private Set<K> dependentsOf(K key, K excluded) {
+        if (!dependents.containsKey(key)) {
+            return Collections.emptySet();
+        }
+        final Set<K> visited = new LinkedHashSet<>();
+        final Deque<K> pending = new ArrayDeque<>();
+        pending.add(key);
+        while (!pending.isEmpty()) {
+            for (K dependent : dependents.getOrDefault(pending.poll(), Collections.emptySet())) {
+                if (!dependent.equals(key) && !dependent.equals(excluded) && visited.add(dependent)) {
+                    pending.add(dependent);
+                }
+            }
+        }
+        return visited;
+    }
+
+    private void remove(K key) {
+        final Set<K> previous = dependents.remove(key);
+        if (previous != null) {
+            for (K dependent : previous) {
+                final Set<K> keys = dependencies.get(dependent);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    dependencies.remove(dependent);
+                }
+            }
+        }
+        removeDependencies(key);
+    }
+
+    private void removeDependencies(K key) {
+        final Set<K> previous = dependencies.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (K dependency : previous) {
+            final Set<K> keys = dependents.get(dependency);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                dependents.remove(dependency);
+                if (!cached.test(dependency)) {
+                    remove(dependency);
+                }
+            }
+        }
+    }
+}
@@ -15,10 +15,17 @@
  */
 package io.jmnarloch.concurrent.cache;
 
+import com.google.common.base.Ticker;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -35,6 +42,11 @@ class EvictableCache<K, V> implements Cache<K, V> {
     /**
      * Delegated cache.
      */
+    private com.google.common.cache.Cache<K, V> delegate;
+
+    /**
+     * The map view of the delegated cache.
+     */
     private ConcurrentMap<K, V> cache;
 
     /**
@@ -44,11 +56,37 @@ class EvictableCache<K, V> implements Cache<K, V> {
      * @param unit     the time unit
      */
     public EvictableCache(long duration, TimeUnit unit) {
+        this(duration, unit, (key, value, cause) -> {
+        });
+    }
+
+    /**
+     * Creates new instance of {@link EvictableCache} with listener notified about the evicted entries.
+     *
+     * @param duration the duration after which the entries will be evicted
+     * @param unit     the time unit
+     * @param listener the eviction listener
+     */
+    public EvictableCache(long duration, TimeUnit unit, EvictionListener<K, V> listener) {
+        this(duration, unit, Ticker.systemTicker(), listener);
+    }
+
+    /**
+     * Creates new instance of {@link EvictableCache} measuring the time through the given ticker.
+     *
+     * @param duration the duration after which the entries will be evicted
+     * @param unit     the time unit
+     * @param ticker   the ticker
+     * @param listener the eviction listener
+     */
+    public EvictableCache(long duration, TimeUnit unit, Ticker ticker, EvictionListener<K, V> listener) {
 
-        this.cache = CacheBuilder.newBuilder()
+        this.delegate = CacheBuilder.newBuilder()
                 .expireAfterWrite(duration, unit)
-                .<K, V>build()
-                .asMap();
+                .ticker(ticker)
+                .removalListener(new EvictionNotifier<>(listener))
+                .<K, V>build();
+        this.cache = delegate.asMap();
     }
 
     /**
@@ -79,8 +117,8 @@ class EvictableCache<K, V> implements Cache<K, V> {
      * {@inheritDoc}
      */
     @Override
-    public void putIfAbsent(K key, V value) {
-        cache.putIfAbsent(key, value);
+    public V putIfAbsent(K key, V value) {
+        return cache.putIfAbsent(key, value);
     }
 
     /**
@@ -88,7 +126,11 @@ class EvictableCache<K, V> implements Cache<K, V> {
      */
     @Override
     public V computeIfAbsent(K key, Supplier<V> supplier) {
-        return cache.computeIfAbsent(key, (k) -> supplier.get());
+        try {
+            return delegate.get(key, supplier::get);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
+        }
     }
 
     /**
@@ -115,6 +157,14 @@ class EvictableCache<K, V> implements Cache<K, V> {
         return cache.remove(key);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(K key, V value) {
+        return cache.remove(key, value);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -142,4 +192,27 @@ class EvictableCache<K, V> implements Cache<K, V> {
     public void invalidateAll() {
         cache.clear();
     }
+
+    /**
+     * Notifies the listener about the evicted entries. Being a named class rather than a lambda keeps the cache
+     * measurable by the tools walking the object graph, which can't access the fields of the hidden lambda classes.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static final class EvictionNotifier<K, V> implements RemovalListener<K, V> {
+
+        private final EvictionListener<K, V> listener;
+
+        EvictionNotifier(EvictionListener<K, V> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<K, V> notification) {
+            if (notification.wasEvicted()) {
+                listener.onEviction(notification.getKey(), notification.getValue(), notification.getCause().name());
+            }
+        }
+    }
 }
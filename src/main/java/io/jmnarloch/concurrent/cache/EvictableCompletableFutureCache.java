@@ -15,12 +15,23 @@
  */
 package io.jmnarloch.concurrent.cache;
 
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
@@ -33,7 +44,27 @@ import java.util.function.Supplier;
  * the result will be cached. Any subsequent call will be returning the value being wrapped in
  * {@link CompletableFuture#completedFuture(Object)}.
  *
- * A {@link CompletableFuture} that will end processing with an exception will be removed from cache.
+ * Completed entries are stored as the raw values, the {@link CompletableFuture} is being created lazily each time the
+ * entry is being retrieved. Only the {@code null} values and values that are themselves {@link CompletableFuture}
+ * are being stored wrapped, so they can be distinguished from the tasks that are still in progress.
+ *
+ * A {@link CompletableFuture} that will end processing with an exception will be removed from cache. The result of
+ * the task that completes after it's entry has been invalidated is discarded.
+ *
+ * The entries can be tagged when being supplied, the cache maintains the index of the tagged keys so that all of the
+ * entries carrying the specific tag can be invalidated through {@link #invalidateByTag(Object)}.
+ *
+ * The entries supplied through {@link #supplyDependent(Object, Function)} are recording the keys they have been
+ * computed from. Invalidating or reloading any of those keys invalidates the dependent entries, transitively.
+ *
+ * Instead of the fixed duration, the entries can expire after the duration chosen by the {@link AdaptiveExpiry},
+ * based on how often the entries are being hit and how long it takes to load them.
+ *
+ * The cache can be warmed up through {@link #prefetch(Iterable, Function, int, double)}, which loads the keys that
+ * are not yet cached with bounded concurrency and rate.
+ *
+ * On Java 11 and later the cache emits JDK Flight Recorder events for loads, callers joining the in flight loads,
+ * evictions and invalidation of all entries. The events are disabled by default.
  *
  * @param <K> the key type
  * @param <V> the value type
@@ -43,8 +74,17 @@ import java.util.function.Supplier;
  */
 public final class EvictableCompletableFutureCache<K, V> implements CompletableFutureCache<K, V> {
 
-    private final Cache<K, CompletableFuture<V>> cache;
+    private static final Object[] NO_TAGS = new Object[0];
+
+    private final Cache<K, Object> cache;
     private final CompletableFutureExecutor executor;
+    private final HotKeyTracker<K> hotKeys;
+    private final AdaptiveExpiry<K> expiry;
+    private final Ticker ticker;
+    private final ExpirationWheel<K> expirations;
+    private final AtomicLong generation = new AtomicLong();
+    private final TagIndex<K> tags = new TagIndex<>();
+    private final DependencyGraph<K> dependencies = new DependencyGraph<>(new CachedKeys());
 
     /**
      * Creates new instance of {@link EvictableCompletableFutureCache} with executor and specified duration before the
@@ -55,8 +95,55 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
      * @param unit     the time unit
      */
     public EvictableCompletableFutureCache(Executor executor, long duration, TimeUnit unit) {
-        this.cache = new EvictableCache<>(duration, unit);
+        this(executor, duration, unit, null);
+    }
+
+    /**
+     * Creates new instance of {@link EvictableCompletableFutureCache} with executor, specified duration before the
+     * entries will be evicted and the tracker recording the accesses to the keys.
+     *
+     * @param executor the executor to schedule the task
+     * @param duration the duration after which the entries will be evicted
+     * @param unit     the time unit
+     * @param hotKeys  the hot key tracker, or null if the accesses should not be tracked
+     */
+    public EvictableCompletableFutureCache(Executor executor, long duration, TimeUnit unit,
+                                           HotKeyTracker<K> hotKeys) {
+        this(executor, duration, unit, Ticker.systemTicker(), hotKeys, null);
+    }
+
+    /**
+     * Creates new instance of {@link EvictableCompletableFutureCache} with executor and the expiry choosing the
+     * duration before the entries will be evicted.
+     *
+     * @param executor the executor to schedule the task
+     * @param expiry   the adaptive expiry
+     */
+    public EvictableCompletableFutureCache(Executor executor, AdaptiveExpiry<K> expiry) {
+        this(executor, expiry, null);
+    }
+
+    /**
+     * Creates new instance of {@link EvictableCompletableFutureCache} with executor, the expiry choosing the duration
+     * before the entries will be evicted and the tracker recording the accesses to the keys.
+     *
+     * @param executor the executor to schedule the task
+     * @param expiry   the adaptive expiry
+     * @param hotKeys  the hot key tracker, or null if the accesses should not be tracked
+     */
+    public EvictableCompletableFutureCache(Executor executor, AdaptiveExpiry<K> expiry, HotKeyTracker<K> hotKeys) {
+        this(executor, expiry.maxDuration(), TimeUnit.NANOSECONDS, expiry.ticker(), hotKeys, expiry);
+    }
+
+    private EvictableCompletableFutureCache(Executor executor, long duration, TimeUnit unit, Ticker ticker,
+                                            HotKeyTracker<K> hotKeys, AdaptiveExpiry<K> expiry) {
+        final Evictions evictions = new Evictions();
+        this.cache = new EvictableCache<>(duration, unit, ticker, evictions);
         this.executor = new CompletableFutureExecutor(executor);
+        this.hotKeys = hotKeys;
+        this.expiry = expiry;
+        this.ticker = ticker;
+        this.expirations = expiry != null ? new ExpirationWheel<>(ticker.read(), evictions) : null;
     }
 
     /**
@@ -80,12 +167,122 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
      */
     @Override
     public CompletableFuture<V> supply(K key, Supplier<V> supplier) {
+        return supply(key, supplier, NO_TAGS);
+    }
+
+    /**
+     * Associated the specific supplier with the key and tags the entry. The tags are being assigned only when the
+     * supplier is being scheduled for execution, calls that are returning the previously stored {@link CompletableFuture}
+     * are not modifying it's tags.
+     *
+     * @param key      the key to associate the specific supplier with
+     * @param supplier the supplier to be executed
+     * @param tags     the tags of the entry
+     * @return the future
+     * @throws NullPointerException if {@code key} is {@code null}
+     *                              or {@code supplier} is {@code null}
+     *                              or any of the {@code tags} is {@code null}
+     * @throws CompletionException  if an error occurs when scheduling the {@code supplier} for execution
+     * @see #invalidateByTag(Object)
+     */
+    public CompletableFuture<V> supply(K key, Supplier<V> supplier, Object... tags) {
+        return supply(key, supplier, tags, null);
+    }
+
+    /**
+     * Associated the specific loader with the key. The loader is being given the view of this cache, any keys that
+     * the loader will access through it are being recorded as the dependencies of the entry. Once any of the
+     * dependencies will be invalidated or reloaded, the entry will be invalidated as well.
+     *
+     * @param key    the key to associate the specific loader with
+     * @param loader the loader to be executed
+     * @return the future
+     * @throws NullPointerException if {@code key} is {@code null}
+     *                              or {@code loader} is {@code null}
+     * @throws CompletionException  if an error occurs when scheduling the {@code loader} for execution
+     */
+    public CompletableFuture<V> supplyDependent(K key, Function<CompletableFutureCache<K, V>, V> loader) {
         Objects.requireNonNull(key);
-        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(loader);
+
+        final CompletableFutureCache<K, V> recorder = new DependencyRecorder(key);
+        return supply(key, () -> loader.apply(recorder));
+    }
 
-        return cache.computeIfAbsent(key, () ->
-                executor.supplyAsync(supplier, new CompletableFutureObserver(key))
-        );
+    /**
+     * Prefetches the values of the given keys, that are not yet cached or being loaded. The values are loaded in
+     * the background, with at most {@link Runtime#availableProcessors()} concurrent loads.
+     *
+     * @param keys   the keys to prefetch
+     * @param loader the loader computing the value of the key
+     * @return the future completed once all of the keys have been processed
+     * @throws NullPointerException if {@code keys} is {@code null}
+     *                              or {@code loader} is {@code null}
+     * @see #prefetch(Iterable, Function, int, double)
+     */
+    public CompletableFuture<PrefetchResult> prefetch(Iterable<K> keys, Function<K, V> loader) {
+        return prefetch(keys, loader, Runtime.getRuntime().availableProcessors(), Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Prefetches the values of the given keys, that are not yet cached or being loaded. The values are loaded in
+     * the background, through the same path as {@link #supply(Object, Supplier)}, with bounded number of
+     * concurrent loads and bounded rate at which the loads are being started. The loads are being paced from the
+     * thread pool shared by all of the caches.
+     *
+     * Cancelling the returned future stops scheduling any further loads.
+     *
+     * @param keys               the keys to prefetch
+     * @param loader             the loader computing the value of the key
+     * @param maxConcurrentLoads the maximum number of concurrent loads
+     * @param loadsPerSecond     the maximum number of loads started per second
+     * @return the future completed once all of the keys have been processed
+     * @throws NullPointerException     if {@code keys} is {@code null}
+     *                                  or {@code loader} is {@code null}
+     * @throws IllegalArgumentException if {@code maxConcurrentLoads} or {@code loadsPerSecond} is not positive
+     * @see #prefetch(Iterable, Function, int, double, Executor)
+     */
+    public CompletableFuture<PrefetchResult> prefetch(Iterable<K> keys, Function<K, V> loader,
+                                                      int maxConcurrentLoads, double loadsPerSecond) {
+        return prefetch(keys, loader, maxConcurrentLoads, loadsPerSecond, DefaultPacer.EXECUTOR);
+    }
+
+    /**
+     * Prefetches the values of the given keys, that are not yet cached or being loaded. The values are loaded in
+     * the background, through the same path as {@link #supply(Object, Supplier)}, with bounded number of
+     * concurrent loads and bounded rate at which the loads are being started. The loads are being paced by the
+     * single task executed by the given executor, which is blocked until all of the keys have been processed.
+     *
+     * Cancelling the returned future stops scheduling any further loads and interrupts the pacing task.
+     *
+     * @param keys               the keys to prefetch
+     * @param loader             the loader computing the value of the key
+     * @param maxConcurrentLoads the maximum number of concurrent loads
+     * @param loadsPerSecond     the maximum number of loads started per second
+     * @param pacer              the executor running the pacing task
+     * @return the future completed once all of the keys have been processed
+     * @throws NullPointerException     if {@code keys} is {@code null}
+     *                                  or {@code loader} is {@code null}
+     *                                  or {@code pacer} is {@code null}
+     * @throws IllegalArgumentException if {@code maxConcurrentLoads} or {@code loadsPerSecond} is not positive
+     */
+    public CompletableFuture<PrefetchResult> prefetch(Iterable<K> keys, Function<K, V> loader,
+                                                      int maxConcurrentLoads, double loadsPerSecond,
+                                                      Executor pacer) {
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(loader);
+        Objects.requireNonNull(pacer);
+        if (maxConcurrentLoads <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent loads must be positive");
+        }
+        if (!(loadsPerSecond > 0)) {
+            throw new IllegalArgumentException("The number of loads per second must be positive");
+        }
+
+        final Prefetch prefetch = new Prefetch(keys, loader, maxConcurrentLoads,
+                (long) (TimeUnit.SECONDS.toNanos(1) / loadsPerSecond));
+        pacer.execute(prefetch);
+        return prefetch.result;
     }
 
     /**
@@ -95,7 +292,12 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
     public CompletableFuture<V> get(K key) {
         Objects.requireNonNull(key);
 
-        return cache.get(key);
+        recordAccess(key);
+        final Object entry = lookup(key);
+        if (isLoading(entry)) {
+            recordJoin(key);
+        }
+        return future(entry);
     }
 
     /**
@@ -113,7 +315,27 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
     public void invalidate(K key) {
         Objects.requireNonNull(key);
 
-        cache.invalidateIfPresent(key, (v) -> v.cancel(true));
+        invalidateEntry(key);
+        if (!dependencies.isEmpty()) {
+            for (K dependent : dependencies.invalidate(key)) {
+                invalidateEntry(dependent);
+            }
+        }
+    }
+
+    /**
+     * Invalidates all of the entries tagged with the given tag, including the {@link CompletableFuture} that are still
+     * in progress.
+     *
+     * @param tag the tag to invalidate
+     * @throws NullPointerException if {@code tag} is {@code null}
+     */
+    public void invalidateByTag(Object tag) {
+        Objects.requireNonNull(tag);
+
+        for (K key : tags.keys(tag)) {
+            invalidate(key);
+        }
     }
 
     /**
@@ -121,21 +343,209 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
      */
     @Override
     public void invalidateAll() {
+        final CacheEvents.Sweep sweep = CacheEvents.invalidateAllStarted();
+        final long entries = cache.size();
+        generation.incrementAndGet();
+        // the indexes are cleared first, the loads started in the meantime are tagging their entries and recording
+        // their dependencies once again
+        tags.clear();
+        dependencies.clear();
         cache.invalidateAll();
+        if (expirations != null) {
+            expirations.clear();
+        }
+        sweep.completed(entries);
+    }
+
+    private CompletableFuture<V> supply(K key, Supplier<V> supplier, Object[] tags, K dependent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(supplier);
+        for (Object tag : tags) {
+            Objects.requireNonNull(tag);
+        }
+
+        recordAccess(key);
+        return future(supply(new Loader(key, supplier, tags, dependent)));
+    }
+
+    private Object supply(Loader loader) {
+        Object entry = cache.computeIfAbsent(loader.key, loader);
+        while (isExpired(entry)) {
+            expire(loader.key, entry);
+            entry = cache.computeIfAbsent(loader.key, loader);
+        }
+        if (entry == loader.future) {
+            tag(loader);
+            reloaded(loader.key, loader.dependent);
+            recordLoad(loader.key);
+            loader.load();
+        } else if (entry instanceof CompletableFuture) {
+            recordJoin(loader.key);
+        }
+        return entry;
+    }
+
+    private void tag(Loader loader) {
+        if (loader.tags.length > 0) {
+            tags.tag(loader.key, loader.tags);
+            if (cache.get(loader.key) != loader.future) {
+                tags.untag(loader.key, loader.tags);
+            }
+        } else if (tags.tags(loader.key) != null) {
+            tags.tag(loader.key, NO_TAGS);
+        }
+    }
+
+    private Object lookup(K key) {
+        final Object entry = cache.get(key);
+        if (isExpired(entry)) {
+            expire(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private void recordAccess(K key) {
+        if (hotKeys != null) {
+            hotKeys.recordAccess(key);
+        }
+        if (expiry != null) {
+            expiry.recordAccess(key);
+        }
+    }
+
+    private void recordJoin(K key) {
+        CacheEvents.joined(key);
+        if (hotKeys != null) {
+            hotKeys.recordJoin(key);
+        }
+    }
+
+    private void recordLoad(K key) {
+        if (hotKeys != null) {
+            hotKeys.recordLoad(key);
+        }
+    }
+
+    private void evicted(K key, Object value, String cause) {
+        CacheEvents.evicted(key, cause);
+        if (!isLoading(value)) {
+            released(key);
+        }
     }
 
-    private void put(K key, CompletableFuture<V> value) {
-        cache.put(key, value);
+    private void invalidateEntry(K key) {
+        Object entry;
+        while ((entry = cache.get(key)) != null) {
+            // the in flight load is being cancelled before it's removed, so that it can tell the invalidation apart
+            // from the expiry of it's future
+            cancel(entry);
+            if (cache.remove(key, entry)) {
+                released(key);
+                return;
+            }
+        }
+    }
+
+    private void reloaded(K key, K requester) {
+        if (!dependencies.isEmpty()) {
+            for (K dependent : dependencies.reload(key, requester)) {
+                invalidateEntry(dependent);
+            }
+        }
     }
 
-    private void remove(K key) {
-        cache.remove(key);
+    private void released(K key) {
+        final Object[] tagged = tags.tags(key);
+        if (!isCached(key)) {
+            tags.untag(key, tagged);
+            if (!dependencies.isEmpty()) {
+                dependencies.release(key);
+            }
+        }
     }
 
-    private CompletableFuture<V> cached(V value) {
-        return CompletableFuture.completedFuture(value);
+    private boolean isCached(K key) {
+        final Object entry = cache.get(key);
+        return entry != null && !isExpired(entry);
     }
 
+    private boolean isExpired(Object entry) {
+        return entry instanceof ExpirationWheel.Entry
+                && ((ExpirationWheel.Entry<?>) entry).expiresAt - ticker.read() <= 0;
+    }
+
+    private void expire(K key, Object entry) {
+        if (cache.remove(key, entry)) {
+            CacheEvents.evicted(key, "EXPIRED");
+            released(key);
+        }
+    }
+
+    private void expireEntries() {
+        if (expirations != null) {
+            expirations.expire(ticker.read());
+        }
+    }
+
+    /**
+     * Replaces the future of the completed load with it's value. The future that has expired while the load was in
+     * flight is no longer cached, in which case the value is still being stored, unless the future has been
+     * invalidated or another load has been started in the meantime.
+     */
+    private boolean replace(K key, CompletableFuture<V> future, long generation, Object value) {
+        if (cache.replace(key, future, value)) {
+            return true;
+        }
+        if (!future.isCancelled() && generation == this.generation.get() && cache.putIfAbsent(key, value) == null) {
+            return true;
+        }
+        released(key);
+        return false;
+    }
+
+    private void remove(K key, CompletableFuture<V> future) {
+        cache.remove(key, future);
+        released(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> future(Object entry) {
+        if (entry instanceof ExpirationWheel.Entry) {
+            return future(((ExpirationWheel.Entry<?>) entry).value);
+        } else if (entry == null) {
+            return null;
+        } else if (entry instanceof CompletableFuture) {
+            return (CompletableFuture<V>) entry;
+        } else if (entry instanceof CompletedValue) {
+            return CompletableFuture.completedFuture((V) ((CompletedValue) entry).value);
+        }
+        return CompletableFuture.completedFuture((V) entry);
+    }
+
+    private static Object compact(Object value) {
+        if (value == null) {
+            return CompletedValue.NULL;
+        } else if (value instanceof CompletableFuture) {
+            return new CompletedValue(value);
+        }
+        return value;
+    }
+
+    private static boolean isLoading(Object entry) {
+        return entry instanceof CompletableFuture && !((CompletableFuture<?>) entry).isDone();
+    }
+
+    private static void cancel(Object entry) {
+        if (entry instanceof CompletableFuture) {
+            ((CompletableFuture<?>) entry).cancel(true);
+        }
+    }
+
+    /**
+     * Runs the supplier together with the observer as the single task, so that the observer is never being invoked
+     * on the thread that has scheduled the task, even if the task completes before it got scheduled.
+     */
     private static final class CompletableFutureExecutor {
 
         private final Executor executor;
@@ -144,16 +554,60 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
             this.executor = executor;
         }
 
-        <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, BiConsumer<T, Throwable> observer) {
-            return observe(supplyAsync(supplier), observer);
+        <T> void execute(Supplier<T> supplier, BiConsumer<T, Throwable> observer) {
+            executor.execute(() -> observe(supplier, observer));
         }
 
-        private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
-            return CompletableFuture.supplyAsync(supplier, executor);
+        private static <T> void observe(Supplier<T> supplier, BiConsumer<T, Throwable> observer) {
+            final T value;
+            try {
+                value = supplier.get();
+            } catch (Throwable e) {
+                observer.accept(null, e instanceof CompletionException ? e : new CompletionException(e));
+                return;
+            }
+            observer.accept(value, null);
         }
+    }
 
-        private <T> CompletableFuture<T> observe(CompletableFuture<T> observable, BiConsumer<T, Throwable> observer) {
-            return observable.whenComplete(observer);
+    private class Loader implements Supplier<Object> {
+
+        private final K key;
+
+        private final Supplier<V> supplier;
+
+        private final Object[] tags;
+
+        private final K dependent;
+
+        private CompletableFuture<V> future;
+
+        private long generation;
+
+        Loader(K key, Supplier<V> supplier, Object[] tags, K dependent) {
+            this.key = key;
+            this.supplier = supplier;
+            this.tags = tags.length > 0 ? tags.clone() : tags;
+            this.dependent = dependent;
+        }
+
+        @Override
+        public Object get() {
+            generation = EvictableCompletableFutureCache.this.generation.get();
+            future = new CompletableFuture<>();
+            return future;
+        }
+
+        void load() {
+            final CacheEvents.Load load = CacheEvents.loadStarted(key);
+            try {
+                executor.execute(supplier, new CompletableFutureObserver(key, future, generation, load, ticker.read()));
+            } catch (RuntimeException e) {
+                load.completed(e);
+                remove(key, future);
+                future.completeExceptionally(e);
+                throw e;
+            }
         }
     }
 
@@ -161,19 +615,269 @@ public final class EvictableCompletableFutureCache<K, V> implements CompletableF
 
         private final K key;
 
-        public CompletableFutureObserver(K key) {
+        private final CompletableFuture<V> future;
+
+        private final long generation;
+
+        private final CacheEvents.Load load;
+
+        private final long started;
+
+        public CompletableFutureObserver(K key, CompletableFuture<V> future, long generation, CacheEvents.Load load,
+                                         long started) {
             this.key = key;
+            this.future = future;
+            this.generation = generation;
+            this.load = load;
+            this.started = started;
         }
 
         @Override
         public void accept(V value, Throwable throwable) {
+            load.completed(throwable);
+            recordLoad(key);
             if (throwable != null) {
-                remove(key);
+                remove(key, future);
+                future.completeExceptionally(throwable);
             } else {
-                final CompletableFuture<V> cached = cached(value);
-                put(key, cached);
+                store(compact(value));
+                future.complete(value);
+                expireEntries();
+            }
+        }
+
+        private void store(Object value) {
+            if (expiry == null) {
+                replace(key, future, generation, value);
+                return;
+            }
+            final long now = ticker.read();
+            final ExpirationWheel.Entry<K> entry =
+                    new ExpirationWheel.Entry<>(key, value, now + expiry.recordLoad(key, now - started, cache.size()));
+            if (replace(key, future, generation, entry)) {
+                expirations.schedule(entry);
+            }
+        }
+
+    }
+
+    private class Prefetch implements Runnable {
+
+        private final Iterable<K> keys;
+
+        private final Function<K, V> loader;
+
+        private final int maxConcurrentLoads;
+
+        private final Semaphore loads;
+
+        private final long interval;
+
+        private final AtomicInteger loaded = new AtomicInteger();
+
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private final CompletableFuture<PrefetchResult> result = new CompletableFuture<>();
+
+        private Thread pacer;
+
+        private boolean interrupted;
+
+        Prefetch(Iterable<K> keys, Function<K, V> loader, int maxConcurrentLoads, long interval) {
+            this.keys = keys;
+            this.loader = loader;
+            this.maxConcurrentLoads = maxConcurrentLoads;
+            this.loads = new Semaphore(maxConcurrentLoads);
+            this.interval = interval;
+            result.whenComplete((r, throwable) -> {
+                if (result.isCancelled()) {
+                    cancelled();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (!started()) {
+                return;
+            }
+            try {
+                long next = System.nanoTime();
+                for (K key : keys) {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    if (isCached(key)) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+                    loads.acquire();
+                    TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+                    next = Math.max(next, System.nanoTime()) + interval;
+                    prefetch(key);
+                }
+                loads.acquire(maxConcurrentLoads);
+                result.complete(new PrefetchResult(loaded.get(), skipped.get(), failed.get()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished();
+            }
+        }
+
+        private synchronized boolean started() {
+            if (result.isDone()) {
+                return false;
+            }
+            pacer = Thread.currentThread();
+            return true;
+        }
+
+        private synchronized void cancelled() {
+            if (pacer != null) {
+                interrupted = true;
+                pacer.interrupt();
+            }
+        }
+
+        private synchronized void finished() {
+            pacer = null;
+            if (interrupted) {
+                // clears the interrupt caused by the cancellation, so that it does not leak to the pacer's next task
+                Thread.interrupted();
+            }
+        }
+
+        private void prefetch(K key) {
+            final Loader prefetch = new Loader(key, () -> loader.apply(key), NO_TAGS, null);
+            try {
+                if (supply(prefetch) != prefetch.future) {
+                    skipped.incrementAndGet();
+                    loads.release();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                loads.release();
+                return;
+            }
+            prefetch.future.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    failed.incrementAndGet();
+                } else {
+                    loaded.incrementAndGet();
+                }
+                loads.release();
+            });
+        }
+    }
+
+    private class DependencyRecorder implements CompletableFutureCache<K, V> {
+
+        private final K dependent;
+
+        DependencyRecorder(K dependent) {
+            this.dependent = dependent;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return EvictableCompletableFutureCache.this.isEmpty();
+        }
+
+        @Override
+        public long size() {
+            return EvictableCompletableFutureCache.this.size();
+        }
+
+        @Override
+        public CompletableFuture<V> supply(K key, Supplier<V> supplier) {
+            record(key);
+            return EvictableCompletableFutureCache.this.supply(key, supplier, NO_TAGS, dependent);
+        }
+
+        @Override
+        public CompletableFuture<V> get(K key) {
+            record(key);
+            return EvictableCompletableFutureCache.this.get(key);
+        }
+
+        @Override
+        public Optional<CompletableFuture<V>> getOptional(K key) {
+            return Optional.ofNullable(get(key));
+        }
+
+        @Override
+        public void invalidate(K key) {
+            EvictableCompletableFutureCache.this.invalidate(key);
+        }
+
+        @Override
+        public void invalidateAll() {
+            EvictableCompletableFutureCache.this.invalidateAll();
+        }
+
+        /**
+         * Records the dependency before it's being read, so that the invalidation of the dependency racing with the
+         * read can't miss the dependent.
+         *
+         * @param dependency the dependency key
+         */
+        private void record(K dependency) {
+            Objects.requireNonNull(dependency);
+            if (!dependent.equals(dependency)) {
+                dependencies.add(dependent, dependency);
             }
         }
+    }
+
+    /**
+     * Handles the entries evicted by the underlying cache and the entries that have passed their adaptive deadline.
+     * The callbacks are named classes rather than method references, so the object graph of the cache stays
+     * measurable by the tools that can't access the fields of the hidden lambda classes.
+     */
+    private class Evictions implements EvictionListener<K, Object>, Consumer<ExpirationWheel.Entry<K>> {
 
+        @Override
+        public void onEviction(K key, Object value, String cause) {
+            evicted(key, value, cause);
+        }
+
+        @Override
+        public void accept(ExpirationWheel.Entry<K> entry) {
+            expire(entry.key, entry);
+        }
+    }
+
+    private class CachedKeys implements Predicate<K> {
+
+        @Override
+        public boolean test(K key) {
+            return isCached(key);
+        }
+    }
+
+    private static final class DefaultPacer {
+
+        private static final Executor EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("completable-future-cache-prefetch-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    private static final class CompletedValue {
+
+        private static final CompletedValue NULL = new CompletedValue(null);
+
+        private final Object value;
+
+        CompletedValue(Object value) {
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+/**
+ * A listener notified whenever the {@link Cache} evicts an entry on it's own, either because the entry expired or
+ * has been garbage collected.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Jakub Narloch
+ */
+interface EvictionListener<K, V> {
+
+    /**
+     * Notifies that the entry has been evicted.
+     *
+     * @param key   the key of the evicted entry
+     * @param value the value of the evicted entry
+     * @param cause the cause of the eviction
+     */
+    void onEviction(K key, V value, String cause);
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel scheduling the expiration of the entries with individual deadlines. Each slot of the wheel
+ * covers a fixed interval of time and holds the lock free stack of the entries, linked through the entries themselves,
+ * so scheduling the entry does not allocate nor block.
+ *
+ * The expired entries are being collected by the single thread at a time, the other threads are not waiting for it.
+ * The entries are reported once their slot has passed, at most one slot interval after their deadline, and the
+ * entries with deadlines further than the whole wheel are being rescheduled until their slot comes around.
+ *
+ * @param <K> the key type
+ * @author Jakub Narloch
+ */
+final class ExpirationWheel<K> {
+
+    private static final int SHIFT = 30;
+
+    private static final int SLOTS = 64;
+
+    private static final int MASK = SLOTS - 1;
+
+    private final AtomicReferenceArray<Entry<K>> slots = new AtomicReferenceArray<>(SLOTS);
+
+    private final AtomicBoolean expiring = new AtomicBoolean();
+
+    private final Consumer<Entry<K>> expired;
+
+    private volatile long tick;
+
+    /**
+     * Creates new instance of {@link ExpirationWheel}.
+     *
+     * @param now     the current time in nanoseconds
+     * @param expired the consumer of the expired entries, the reported entries are not guaranteed to still be
+     *                cached, the consumer is expected to remove them only if they are
+     */
+    ExpirationWheel(long now, Consumer<Entry<K>> expired) {
+        this.tick = now >> SHIFT;
+        this.expired = expired;
+    }
+
+    /**
+     * Schedules the expiration of the entry.
+     *
+     * @param entry the entry
+     */
+    void schedule(Entry<K> entry) {
+        push(Math.max(entry.expiresAt >> SHIFT, tick), entry);
+    }
+
+    /**
+     * Reports the entries whose slots have passed.
+     *
+     * @param now the current time in nanoseconds
+     */
+    void expire(long now) {
+        final long current = now >> SHIFT;
+        if (current <= tick || !expiring.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long last = Math.min(current, tick + SLOTS);
+            for (long slot = tick; slot < last; slot++) {
+                Entry<K> entry = slots.getAndSet((int) (slot & MASK), null);
+                while (entry != null) {
+                    final Entry<K> next = entry.next;
+                    entry.next = null;
+                    if (entry.expiresAt >> SHIFT < current) {
+                        expired.accept(entry);
+                    } else {
+                        push(entry.expiresAt >> SHIFT, entry);
+                    }
+                    entry = next;
+                }
+            }
+            tick = current;
+        } finally {
+            expiring.set(false);
+        }
+    }
+
+    /**
+     * Removes all of the scheduled entries.
+     */
+    void clear() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            slots.set(slot, null);
+        }
+    }
+
+    private void push(long slot, Entry<K> entry) {
+        final int index = (int) (slot & MASK);
+        Entry<K> head;
+        do {
+            head = slots.get(index);
+            entry.next = head;
+        } while (!slots.compareAndSet(index, head, entry));
+    }
+
+    /**
+     * The cached value together with it's deadline.
+     *
+     * @param <K> the key type
+     */
+    static final class Entry<K> {
+
+        final K key;
+
+        final Object value;
+
+        final long expiresAt;
+
+        Entry<K> next;
+
+        Entry(K key, Object value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
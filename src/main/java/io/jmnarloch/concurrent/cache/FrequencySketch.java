@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+/**
+ * A Count-Min sketch estimating the frequency of the keys in fixed amount of memory. The counters are updated
+ * without any synchronization, under contention some of the increments might be lost, which is acceptable for the
+ * approximate estimates.
+ *
+ * @author Jakub Narloch
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int[] SEEDS = {0x97cb3127, 0x2e7d5d73, 0x6d2b79f5, 0x9e3779b9};
+
+    private final int[] table;
+
+    private final int width;
+
+    private final int mask;
+
+    /**
+     * Creates new instance of {@link FrequencySketch}.
+     *
+     * @param width the number of counters per row, rounded up to the power of two
+     */
+    FrequencySketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.mask = this.width - 1;
+        this.table = new int[DEPTH * this.width];
+    }
+
+    /**
+     * Returns the number of counters per row.
+     *
+     * @return the width
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Increments the frequency of the given key.
+     *
+     * @param key the key
+     * @return the estimated frequency after the increment
+     */
+    int increment(Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = indexOf(hash, row);
+            final int count = table[index] + 1;
+            table[index] = count;
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Estimates the frequency of the given key.
+     *
+     * @param key the key
+     * @return the estimated frequency
+     */
+    int estimate(Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves all of the counters, so that the estimates are aging over time.
+     */
+    void halve() {
+        for (int ind = 0; ind < table.length; ind++) {
+            table[ind] >>>= 1;
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3775cd;
+        h ^= h >>> 16;
+        return row * width + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x85ebca6b;
+        h ^= h >>> 13;
+        return h * 0xc2b2ae35;
+    }
+}
@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the most frequently accessed keys of the {@link CompletableFutureCache}. The frequencies are being estimated
+ * through the fixed size Count-Min sketch and only the keys with the highest estimates are being retained, so the
+ * memory used by the tracker is bounded regardless of the number of distinct keys.
+ *
+ * The counters are halved periodically, after the number of accesses proportional to the sketch width, so the
+ * reported rates are reflecting the recent traffic. The accesses are being counted in the per thread stripes, so that
+ * the threads recording the accesses are not contending on the single counter.
+ *
+ * For every hot key the tracker also reports the number of callers currently waiting on the in flight load of the key.
+ *
+ * @param <K> the key type
+ * @author Jakub Narloch
+ * @see EvictableCompletableFutureCache
+ */
+public final class HotKeyTracker<K> {
+
+    private static final int MIN_WIDTH = 1024;
+
+    private static final int WIDTH_PER_KEY = 64;
+
+    private static final int SAMPLE_FACTOR = 10;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private static final int STRIPE_PADDING = 16;
+
+    private final int capacity;
+
+    private final FrequencySketch sketch;
+
+    private final int sampleSize;
+
+    private final ConcurrentMap<K, Candidate<K>> candidates;
+
+    private final Candidate<K>[] heap;
+
+    private final AtomicLongArray accesses = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+    private final int stripeSize;
+
+    private final AtomicInteger periods = new AtomicInteger();
+
+    private int size;
+
+    private volatile int minFrequency;
+
+    private volatile long windowStart;
+
+    private volatile long windowLength;
+
+    /**
+     * Creates new instance of {@link HotKeyTracker}.
+     *
+     * @param capacity the number of the hot keys to track
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public HotKeyTracker(int capacity) {
+        this(capacity, Math.max(MIN_WIDTH, capacity * WIDTH_PER_KEY));
+    }
+
+    /**
+     * Creates new instance of {@link HotKeyTracker}.
+     *
+     * @param capacity the number of the hot keys to track
+     * @param width    the number of counters per row of the sketch
+     * @throws IllegalArgumentException if {@code capacity} or {@code width} is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public HotKeyTracker(int capacity, int width) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("The width must be positive");
+        }
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(width);
+        this.sampleSize = SAMPLE_FACTOR * sketch.width();
+        this.stripeSize = Math.max(1, sampleSize / STRIPES);
+        this.candidates = new ConcurrentHashMap<>(capacity);
+        this.heap = (Candidate<K>[]) new Candidate<?>[capacity];
+        this.windowStart = System.nanoTime();
+    }
+
+    /**
+     * Returns the currently hottest keys, ordered by their estimated access rate.
+     *
+     * @return the hot keys
+     */
+    public List<HotKey<K>> topKeys() {
+        final long elapsed = Math.max(1, System.nanoTime() - windowStart + windowLength);
+        final List<HotKey<K>> hotKeys = new ArrayList<>(capacity);
+        for (Candidate<K> candidate : candidates.values()) {
+            final double rate = (double) sketch.estimate(candidate.key) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            hotKeys.add(new HotKey<>(candidate.key, rate, candidate.joins.get()));
+        }
+        hotKeys.sort(Comparator.comparingDouble(HotKey<K>::getRate).reversed());
+        return hotKeys;
+    }
+
+    /**
+     * Records the access to the given key.
+     *
+     * @param key the key
+     */
+    void recordAccess(K key) {
+        final int frequency = sketch.increment(key);
+        if (countAccess()) {
+            age();
+        }
+        if (frequency >= minFrequency && !candidates.containsKey(key)) {
+            admit(key, frequency);
+        }
+    }
+
+    /**
+     * Records the caller joining the in flight load of the given key.
+     *
+     * @param key the key
+     */
+    void recordJoin(K key) {
+        final Candidate<K> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.joins.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the start or the completion of the load of the given key, the callers that have joined the previous
+     * load are no longer waiting on it.
+     *
+     * @param key the key
+     */
+    void recordLoad(K key) {
+        final Candidate<K> candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.joins.set(0);
+        }
+    }
+
+    /**
+     * Counts the access in the stripe of the current thread. Once the stripe fills up it's being reset and counted as
+     * the completed period, the sample is complete after the number of periods equal to the number of stripes.
+     *
+     * @return whether the sample is complete
+     */
+    private boolean countAccess() {
+        final int stripe = stripe() * STRIPE_PADDING;
+        if (accesses.incrementAndGet(stripe) < stripeSize) {
+            return false;
+        }
+        accesses.set(stripe, 0);
+        return (periods.incrementAndGet() & (STRIPES - 1)) == 0;
+    }
+
+    private synchronized void admit(K key, int frequency) {
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        final Candidate<K> candidate = new Candidate<>(key, frequency);
+        if (size < capacity) {
+            heap[size] = candidate;
+            siftUp(size++);
+            candidates.put(key, candidate);
+            return;
+        }
+        final Candidate<K> coldest = coldest();
+        if (frequency > coldest.frequency) {
+            candidates.remove(coldest.key);
+            heap[0] = candidate;
+            siftDown(0);
+            candidates.put(key, candidate);
+        } else {
+            minFrequency = coldest.frequency + 1;
+        }
+    }
+
+    /**
+     * Returns the candidate with the lowest frequency estimate. The frequencies stored in the heap are the estimates
+     * from the time the candidate was last examined, and since the sketch counters only grow between the agings they
+     * are the lower bounds of the current estimates. It's enough to refresh the root until it's frequency is up to
+     * date, at which point it's no greater than the current estimate of any other candidate.
+     *
+     * @return the coldest candidate
+     */
+    private Candidate<K> coldest() {
+        while (true) {
+            final Candidate<K> root = heap[0];
+            final int estimate = sketch.estimate(root.key);
+            if (estimate <= root.frequency) {
+                root.frequency = estimate;
+                return root;
+            }
+            root.frequency = estimate;
+            siftDown(0);
+        }
+    }
+
+    private synchronized void age() {
+        sketch.halve();
+        for (int index = 0; index < size; index++) {
+            final Candidate<K> candidate = heap[index];
+            candidate.frequency >>>= 1;
+        }
+        minFrequency >>>= 1;
+        final long now = System.nanoTime();
+        windowLength = now - windowStart;
+        windowStart = now;
+    }
+
+    private void siftUp(int index) {
+        final Candidate<K> candidate = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent].frequency <= candidate.frequency) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = candidate;
+    }
+
+    private void siftDown(int index) {
+        final Candidate<K> candidate = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].frequency < heap[child].frequency) {
+                child++;
+            }
+            if (candidate.frequency <= heap[child].frequency) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = candidate;
+    }
+
+    private static int stripe() {
+        final long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (STRIPES - 1);
+    }
+
+    private static int stripes(int processors) {
+        return processors <= 1 ? 1 : Math.min(64, Integer.highestOneBit(processors - 1) << 1);
+    }
+
+    /**
+     * The tracked key, with it's last examined frequency estimate and the number of callers waiting on it's load.
+     *
+     * @param <K> the key type
+     */
+    private static final class Candidate<K> {
+
+        private final K key;
+
+        private final AtomicLong joins = new AtomicLong();
+
+        private int frequency;
+
+        Candidate(K key, int frequency) {
+            this.key = key;
+            this.frequency = frequency;
+        }
+    }
+
+    /**
+     * The hot key with it's estimated access rate.
+     *
+     * @param <K> the key type
+     */
+    public static final class HotKey<K> {
+
+        private final K key;
+
+        private final double rate;
+
+        private final long joins;
+
+        HotKey(K key, double rate, long joins) {
+            this.key = key;
+            this.rate = rate;
+            this.joins = joins;
+        }
+
+        /**
+         * Returns the key.
+         *
+         * @return the key
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the estimated number of accesses per second.
+         *
+         * @return the access rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * Returns the approximate number of callers currently waiting on the in flight load of the key, either by
+         * supplying or by getting the key while it's being loaded.
+         *
+         * @return the number of joins
+         */
+        public long getJoins() {
+            return joins;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("HotKey{key=%s, rate=%.2f, joins=%d}", key, rate, joins);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+/**
+ * The outcome of prefetching the keys into the cache.
+ *
+ * @author Jakub Narloch
+ * @see EvictableCompletableFutureCache#prefetch(Iterable, java.util.function.Function, int, double)
+ */
+public final class PrefetchResult {
+
+    private final int loaded;
+
+    private final int skipped;
+
+    private final int failed;
+
+    /**
+     * Creates new instance of {@link PrefetchResult}.
+     *
+     * @param loaded  the number of loaded keys
+     * @param skipped the number of skipped keys
+     * @param failed  the number of keys that failed to load
+     */
+    PrefetchResult(int loaded, int skipped, int failed) {
+        this.loaded = loaded;
+        this.skipped = skipped;
+        this.failed = failed;
+    }
+
+    /**
+     * Returns the number of keys that have been loaded.
+     *
+     * @return the number of loaded keys
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the number of keys that have been skipped, since they were already cached or being loaded.
+     *
+     * @return the number of skipped keys
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the number of keys that failed to load.
+     *
+     * @return the number of failed keys
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PrefetchResult{loaded=%d, skipped=%d, failed=%d}", loaded, skipped, failed);
+    }
+}
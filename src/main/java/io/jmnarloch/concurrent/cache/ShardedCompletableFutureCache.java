@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A {@link CompletableFutureCache} that partitions it's keys across the independent
+ * {@link EvictableCompletableFutureCache} shards. Every shard has it's own table and performs it's own expiration,
+ * so that the concurrent accesses to different keys are not contending on the same data structure.
+ *
+ * Every shard can be given it's own executor. With single threaded executor per shard all of the loads of the keys
+ * assigned to the shard, together with their completions and caching of the results, are being performed by the
+ * single thread.
+ *
+ * The operations on the individual keys are delegated to the shard owning the key, while {@link #size()},
+ * {@link #invalidateByTag(Object)} and {@link #invalidateAll()} are aggregated across all shards.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Jakub Narloch
+ * @see EvictableCompletableFutureCache
+ */
+public final class ShardedCompletableFutureCache<K, V> implements CompletableFutureCache<K, V> {
+
+    private final EvictableCompletableFutureCache<K, V>[] shards;
+
+    /**
+     * Creates new instance of {@link ShardedCompletableFutureCache} with one shard per available processor, all
+     * sharing the same executor.
+     *
+     * @param executor the executor to schedule the task
+     * @param duration the duration after which the entries will be evicted
+     * @param unit     the time unit
+     */
+    public ShardedCompletableFutureCache(Executor executor, long duration, TimeUnit unit) {
+        this(Runtime.getRuntime().availableProcessors(), (shard) -> executor, duration, unit);
+    }
+
+    /**
+     * Creates new instance of {@link ShardedCompletableFutureCache} with the specified number of shards, each
+     * with the executor created for it.
+     *
+     * @param shards    the number of shards
+     * @param executors the function creating the executor of the shard with the given index
+     * @param duration  the duration after which the entries will be evicted
+     * @param unit      the time unit
+     * @throws IllegalArgumentException if {@code shards} is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedCompletableFutureCache(int shards, IntFunction<Executor> executors, long duration, TimeUnit unit) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("The number of shards must be positive");
+        }
+        this.shards = (EvictableCompletableFutureCache<K, V>[]) new EvictableCompletableFutureCache<?, ?>[shards];
+        for (int ind = 0; ind < shards; ind++) {
+            this.shards[ind] = new EvictableCompletableFutureCache<>(executors.apply(ind), duration, unit);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        for (EvictableCompletableFutureCache<K, V> shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() {
+        long size = 0;
+        for (EvictableCompletableFutureCache<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<V> supply(K key, Supplier<V> supplier) {
+        return shard(key).supply(key, supplier);
+    }
+
+    /**
+     * Associated the specific supplier with the key and tags the entry. The tags are being assigned only when the
+     * supplier is being scheduled for execution, calls that are returning the previously stored {@link CompletableFuture}
+     * are not modifying it's tags.
+     *
+     * @param key      the key to associate the specific supplier with
+     * @param supplier the supplier to be executed
+     * @param tags     the tags of the entry
+     * @return the future
+     * @throws NullPointerException if {@code key} is {@code null}
+     *                              or {@code supplier} is {@code null}
+     *                              or any of the {@code tags} is {@code null}
+     * @throws CompletionException  if an error occurs when scheduling the {@code supplier} for execution
+     * @see #invalidateByTag(Object)
+     */
+    public CompletableFuture<V> supply(K key, Supplier<V> supplier, Object... tags) {
+        return shard(key).supply(key, supplier, tags);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<V> get(K key) {
+        return shard(key).get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CompletableFuture<V>> getOptional(K key) {
+        return shard(key).getOptional(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(K key) {
+        shard(key).invalidate(key);
+    }
+
+    /**
+     * Invalidates all of the entries tagged with the given tag, including the {@link CompletableFuture} that are still
+     * in progress.
+     *
+     * @param tag the tag to invalidate
+     * @throws NullPointerException if {@code tag} is {@code null}
+     */
+    public void invalidateByTag(Object tag) {
+        Objects.requireNonNull(tag);
+
+        for (EvictableCompletableFutureCache<K, V> shard : shards) {
+            shard.invalidateByTag(tag);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll() {
+        for (EvictableCompletableFutureCache<K, V> shard : shards) {
+            shard.invalidateAll();
+        }
+    }
+
+    private EvictableCompletableFutureCache<K, V> shard(K key) {
+        Objects.requireNonNull(key);
+
+        return shards[Math.floorMod(spread(key.hashCode()), shards.length)];
+    }
+
+    private static int spread(int hash) {
+        final int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A secondary index associating the tags with the cache keys. The index only retains the keys that have been
+ * explicitly tagged, the keys need to be untagged once the associated entries are removed from the cache, so that the
+ * size of the index is bounded by the number of the tagged entries.
+ *
+ * @param <K> the key type
+ * @author Jakub Narloch
+ */
+final class TagIndex<K> {
+
+    private final ConcurrentMap<Object, Set<K>> keysByTag = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<K, Object[]> tagsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Returns whether the index does not contain any tags.
+     *
+     * @return true if index is empty
+     */
+    boolean isEmpty() {
+        return keysByTag.isEmpty() && tagsByKey.isEmpty();
+    }
+
+    /**
+     * Associates the key with the given tags, replacing any previously associated tags. The given array identifies
+     * the association, so that it could be later removed through {@link #untag(Object, Object[])} only if it has not
+     * been replaced in the meantime.
+     *
+     * @param key  the key
+     * @param tags the tags
+     */
+    void tag(K key, Object[] tags) {
+        tagsByKey.compute(key, (k, previous) -> {
+            if (previous != null) {
+                remove(key, previous);
+            }
+            for (Object tag : tags) {
+                keysByTag.compute(tag, (t, keys) -> {
+                    final Set<K> tagged = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                    tagged.add(key);
+                    return tagged;
+                });
+            }
+            return tags.length > 0 ? tags : null;
+        });
+    }
+
+    /**
+     * Returns the tags currently associated with the key.
+     *
+     * @param key the key
+     * @return the tags, or null if the key is not tagged
+     */
+    Object[] tags(K key) {
+        return tagsByKey.get(key);
+    }
+
+    /**
+     * Removes the tags associated with the key, as long as they are still the given tags.
+     *
+     * @param key      the key
+     * @param expected the tags expected to be associated with the key
+     */
+    void untag(K key, Object[] expected) {
+        if (expected == null) {
+            return;
+        }
+        tagsByKey.computeIfPresent(key, (k, tags) -> {
+            if (tags != expected) {
+                return tags;
+            }
+            remove(key, tags);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the keys associated with the given tag.
+     *
+     * @param tag the tag
+     * @return the snapshot of the tagged keys
+     */
+    Set<K> keys(Object tag) {
+        final Set<K> keys = keysByTag.get(tag);
+        return keys != null ? new HashSet<>(keys) : Collections.emptySet();
+    }
+
+    /**
+     * Removes all of the tags.
+     */
+    void clear() {
+        tagsByKey.clear();
+        keysByTag.clear();
+    }
+
+    private void remove(K key, Object[] tags) {
+        for (Object tag : tags) {
+            keysByTag.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+}
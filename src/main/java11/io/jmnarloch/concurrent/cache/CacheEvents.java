@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emits the cache diagnostic events as JDK Flight Recorder events. All of the events are disabled by default and
+ * need to be enabled explicitly in the recording settings, for instance:
+ * {@code io.jmnarloch.concurrent.cache.Load#enabled=true}.
+ *
+ * @author Jakub Narloch
+ */
+final class CacheEvents {
+
+    private static final EventType LOAD = EventType.getEventType(LoadEvent.class);
+
+    private static final EventType JOIN = EventType.getEventType(JoinEvent.class);
+
+    private static final EventType EVICTION = EventType.getEventType(EvictionEvent.class);
+
+    private static final EventType INVALIDATE_ALL = EventType.getEventType(InvalidateAllEvent.class);
+
+    private CacheEvents() {
+    }
+
+    /**
+     * Records the start of the load of the value associated with the given key.
+     *
+     * @param key the key
+     * @return the load being recorded
+     */
+    static Load loadStarted(Object key) {
+        if (!LOAD.isEnabled()) {
+            return Load.DISABLED;
+        }
+        final LoadEvent event = new LoadEvent();
+        event.key = String.valueOf(key);
+        event.begin();
+        return new Load(event);
+    }
+
+    /**
+     * Records the caller joining the load that is already in flight.
+     *
+     * @param key the key
+     */
+    static void joined(Object key) {
+        if (JOIN.isEnabled()) {
+            final JoinEvent event = new JoinEvent();
+            event.key = String.valueOf(key);
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the eviction of the entry.
+     *
+     * @param key   the key
+     * @param cause the cause of the eviction
+     */
+    static void evicted(Object key, String cause) {
+        if (EVICTION.isEnabled()) {
+            final EvictionEvent event = new EvictionEvent();
+            event.key = String.valueOf(key);
+            event.cause = cause;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the start of the invalidation of all entries.
+     *
+     * @return the sweep being recorded
+     */
+    static Sweep invalidateAllStarted() {
+        if (!INVALIDATE_ALL.isEnabled()) {
+            return Sweep.DISABLED;
+        }
+        final InvalidateAllEvent event = new InvalidateAllEvent();
+        event.begin();
+        return new Sweep(event);
+    }
+
+    /**
+     * The load being recorded.
+     */
+    static class Load {
+
+        static final Load DISABLED = new Load(null);
+
+        private final LoadEvent event;
+
+        private Load(LoadEvent event) {
+            this.event = event;
+        }
+
+        /**
+         * Records the end of the load.
+         *
+         * @param failure the load failure, or null if the load succeeded
+         */
+        void completed(Throwable failure) {
+            if (event != null) {
+                event.end();
+                event.outcome = failure == null ? "SUCCESS" : "FAILURE";
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * The invalidation of all entries being recorded.
+     */
+    static class Sweep {
+
+        static final Sweep DISABLED = new Sweep(null);
+
+        private final InvalidateAllEvent event;
+
+        private Sweep(InvalidateAllEvent event) {
+            this.event = event;
+        }
+
+        /**
+         * Records the end of the invalidation.
+         *
+         * @param entries the number of invalidated entries
+         */
+        void completed(long entries) {
+            if (event != null) {
+                event.end();
+                event.entries = entries;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("io.jmnarloch.concurrent.cache.Load")
+    @Label("Cache Load")
+    @Description("Load of the value associated with the key")
+    @Category("Completable Future Cache")
+    @Enabled(false)
+    static class LoadEvent extends Event {
+
+        @Label("Key")
+        String key;
+
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("io.jmnarloch.concurrent.cache.Join")
+    @Label("Cache Join")
+    @Description("Caller joining the load that is already in flight")
+    @Category("Completable Future Cache")
+    @Enabled(false)
+    static class JoinEvent extends Event {
+
+        @Label("Key")
+        String key;
+    }
+
+    @Name("io.jmnarloch.concurrent.cache.Eviction")
+    @Label("Cache Eviction")
+    @Description("Eviction of the entry")
+    @Category("Completable Future Cache")
+    @Enabled(false)
+    static class EvictionEvent extends Event {
+
+        @Label("Key")
+        String key;
+
+        @Label("Cause")
+        String cause;
+    }
+
+    @Name("io.jmnarloch.concurrent.cache.InvalidateAll")
+    @Label("Cache Invalidate All")
+    @Description("Invalidation of all entries")
+    @Category("Completable Future Cache")
+    @Enabled(false)
+    static class InvalidateAllEvent extends Event {
+
+        @Label("Entries")
+        long entries;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link AdaptiveExpiry} class.
+ *
+ * @author Jakub Narloch
+ */
+public class AdaptiveExpiryTest {
+
+    private static final Function<String, String> CLASSIFIER = (key) -> key.substring(0, key.indexOf('_'));
+
+    private static final int HOT_KEYS = 50;
+
+    private static final double HOT_RATE = 100;
+
+    private static final double SCAN_RATE = 20;
+
+    private static final int WARM_KEYS = 2000;
+
+    private static final double WARM_RATE = 20;
+
+    private static final long HOT_LOAD_COST = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static final long SCAN_LOAD_COST = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final long WARM_LOAD_COST = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final long MAX_ENTRIES = 500;
+
+    private static final long SIMULATION_TIME = TimeUnit.MINUTES.toNanos(20);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeMinDuration() {
+
+        // when
+        new AdaptiveExpiry<String>(-1, 10, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMinDurationGreaterThanMax() {
+
+        // when
+        new AdaptiveExpiry<String>(20, 10, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveMaxEntries() {
+
+        // when
+        new AdaptiveExpiry<String>(5, 10, TimeUnit.SECONDS, key -> key, 0);
+    }
+
+    @Test
+    public void shouldUseMinDurationForUnknownKeys() {
+
+        // given
+        final AdaptiveExpiry<String> instance = new AdaptiveExpiry<>(5, 300, TimeUnit.SECONDS);
+
+        // when
+        final long duration = instance.recordLoad("key", TimeUnit.MILLISECONDS.toNanos(10), 0);
+
+        // then
+        assertEquals(TimeUnit.SECONDS.toNanos(5), duration);
+        assertEquals(5L, (long) instance.getDurations(TimeUnit.SECONDS).get("key"));
+    }
+
+    @Test
+    public void shouldMakeFewerBackendCallsThanFixedExpiry() {
+
+        // given
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveExpiry<String> adaptive = new AdaptiveExpiry<>(5, 300, TimeUnit.SECONDS, CLASSIFIER,
+                Long.MAX_VALUE, ticker(now));
+        final AdaptiveExpiry<String> fixed = new AdaptiveExpiry<>(30, 30, TimeUnit.SECONDS, CLASSIFIER,
+                Long.MAX_VALUE, ticker(now));
+
+        // when
+        final Simulation adaptiveSimulation = simulate(adaptive, now, 0);
+        final Simulation fixedSimulation = simulate(fixed, now, 0);
+
+        // then
+        final Map<Object, Long> durations = adaptive.getDurations(TimeUnit.SECONDS);
+        final String message = String.format("Adaptive expiry: %s, durations: %s, fixed expiry: %s",
+                adaptiveSimulation, durations, fixedSimulation);
+        assertTrue(message, adaptiveSimulation.backendCalls < fixedSimulation.backendCalls);
+        assertTrue(message, adaptiveSimulation.backendTime < fixedSimulation.backendTime);
+        assertTrue(message, adaptiveSimulation.averageSize() <= fixedSimulation.averageSize());
+        assertTrue(message, durations.get("hot") > durations.get("scan"));
+    }
+
+    @Test
+    public void shouldKeepEntriesWithinBudget() {
+
+        // given
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveExpiry<String> unbounded = new AdaptiveExpiry<>(5, 300, TimeUnit.SECONDS, CLASSIFIER,
+                Long.MAX_VALUE, ticker(now));
+        final AdaptiveExpiry<String> bounded = new AdaptiveExpiry<>(5, 300, TimeUnit.SECONDS, CLASSIFIER,
+                MAX_ENTRIES, ticker(now));
+
+        // when
+        final Simulation unboundedSimulation = simulate(unbounded, now, WARM_RATE);
+        final Simulation boundedSimulation = simulate(bounded, now, WARM_RATE);
+
+        // then
+        final Map<Object, Long> durations = bounded.getDurations(TimeUnit.SECONDS);
+        final String message = String.format("Bounded expiry: %s, durations: %s, unbounded expiry: %s",
+                boundedSimulation, durations, unboundedSimulation);
+        assertTrue(message, boundedSimulation.averageSize() <= MAX_ENTRIES * 1.1);
+        assertTrue(message, boundedSimulation.averageSize() < unboundedSimulation.averageSize());
+        assertTrue(message, durations.get("warm") < unbounded.getDurations(TimeUnit.SECONDS).get("warm"));
+        assertTrue(message, durations.get("hot") > durations.get("warm"));
+    }
+
+    private static Simulation simulate(AdaptiveExpiry<String> expiry, AtomicLong now, double warmRate) {
+        final Random random = new Random(0);
+        final Simulation simulation = new Simulation();
+        now.set(0);
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(Runnable::run, expiry);
+
+        long scanKeys = 0;
+        long nextSample = 0;
+        while (now.get() < SIMULATION_TIME) {
+            now.addAndGet((long) (-Math.log(1 - random.nextDouble()) / (HOT_RATE + warmRate + SCAN_RATE)
+                    * TimeUnit.SECONDS.toNanos(1)));
+            final long time = now.get();
+            final double keyClass = random.nextDouble() * (HOT_RATE + warmRate + SCAN_RATE);
+            final String key;
+            final long cost;
+            if (keyClass < HOT_RATE) {
+                key = "hot_" + random.nextInt(HOT_KEYS);
+                cost = HOT_LOAD_COST;
+            } else if (keyClass < HOT_RATE + warmRate) {
+                key = "warm_" + random.nextInt(WARM_KEYS);
+                cost = WARM_LOAD_COST;
+            } else {
+                key = "scan_" + scanKeys++;
+                cost = SCAN_LOAD_COST;
+            }
+
+            cache.supply(key, () -> {
+                simulation.backendCalls++;
+                simulation.backendTime += cost;
+                now.addAndGet(cost);
+                return key;
+            });
+            now.set(time);
+
+            if (time >= nextSample) {
+                simulation.sizes += cache.size();
+                simulation.samples++;
+                nextSample += TimeUnit.SECONDS.toNanos(1);
+            }
+        }
+        return simulation;
+    }
+
+    private static Ticker ticker(AtomicLong now) {
+        return new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        };
+    }
+
+    private static final class Simulation {
+
+        private long backendCalls;
+
+        private long backendTime;
+
+        private long sizes;
+
+        private long samples;
+
+        double averageSize() {
+            return (double) sizes / samples;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("backend calls: %d, backend time: %ds, average size: %.1f", backendCalls,
+                    TimeUnit.NANOSECONDS.toSeconds(backendTime), averageSize());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link DependencyGraph} class.
+ *
+ * @author Jakub Narloch
+ */
+public class DependencyGraphTest {
+
+    private Set<String> cached;
+
+    private DependencyGraph<String> instance;
+
+    @Before
+    public void setUp() throws Exception {
+
+        cached = new HashSet<>();
+        instance = new DependencyGraph<>(cached::contains);
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+
+        // expect
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldInvalidateTransitiveDependents() {
+
+        // given
+        instance.add("settings", "user");
+        instance.add("profile", "user");
+        instance.add("profile", "settings");
+        instance.add("page", "profile");
+        instance.add("other", "unrelated");
+
+        // when
+        final Set<String> stale = instance.invalidate("user");
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("settings", "profile", "page")), stale);
+    }
+
+    @Test
+    public void shouldInvalidateCyclicDependents() {
+
+        // given
+        instance.add("first", "second");
+        instance.add("second", "first");
+
+        // when
+        final Set<String> stale = instance.invalidate("first");
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("second")), stale);
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldReloadDependents() {
+
+        // given
+        cached.addAll(Arrays.asList("user", "settings", "profile"));
+        instance.add("profile", "user");
+        instance.add("user", "settings");
+
+        // when
+        final Set<String> stale = instance.reload("user", null);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("profile")), stale);
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldRetainRequesterOfReload() {
+
+        // given
+        cached.addAll(Arrays.asList("user", "profile", "page"));
+        instance.add("profile", "user");
+        instance.add("page", "user");
+
+        // when
+        final Set<String> stale = instance.reload("user", "profile");
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("page")), stale);
+        assertEquals(new HashSet<>(Arrays.asList("profile")), instance.invalidate("user"));
+    }
+
+    @Test
+    public void shouldNotReleaseKeyWithDependents() {
+
+        // given
+        cached.add("profile");
+        instance.add("profile", "user");
+
+        // when
+        instance.release("user");
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("profile")), instance.invalidate("user"));
+    }
+
+    @Test
+    public void shouldNotReleaseCachedKey() {
+
+        // given
+        cached.add("profile");
+        instance.add("profile", "user");
+
+        // when
+        instance.release("profile");
+
+        // then
+        assertFalse(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldReleaseTransitiveDependencies() {
+
+        // given
+        instance.add("page", "profile");
+        instance.add("profile", "user");
+
+        // when
+        instance.release("page");
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldClearDependencies() {
+
+        // given
+        instance.add("profile", "user");
+
+        // when
+        instance.clear();
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+}
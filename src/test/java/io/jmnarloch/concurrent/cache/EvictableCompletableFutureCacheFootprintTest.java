@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the per entry memory footprint of the {@link EvictableCompletableFutureCache} completed entries.
+ *
+ * @author Jakub Narloch
+ */
+public class EvictableCompletableFutureCacheFootprintTest {
+
+    private static final int ENTRIES = 10000;
+
+    @Test
+    public void shouldStoreCompletedEntriesMoreCompactThanCompletedFutures() {
+
+        // given
+        final Long[] keys = new Long[ENTRIES];
+        final Long[] values = new Long[ENTRIES];
+        for (int ind = 0; ind < ENTRIES; ind++) {
+            keys[ind] = (long) ind;
+            values[ind] = (long) ind + ENTRIES;
+        }
+
+        // when
+        final double completedFutures = perEntryFootprint(completedFutures(keys, values), keys, values);
+        final double compact = perEntryFootprint(compact(keys, values), keys, values);
+
+        // then
+        assertTrue(String.format("Per entry footprint, completed futures: %.1f bytes, compact: %.1f bytes",
+                completedFutures, compact), compact < completedFutures);
+    }
+
+    private static Object completedFutures(Long[] keys, Long[] values) {
+        final Cache<Long, CompletableFuture<Long>> cache = new EvictableCache<>(1, TimeUnit.HOURS);
+        for (int ind = 0; ind < keys.length; ind++) {
+            cache.put(keys[ind], CompletableFuture.completedFuture(values[ind]));
+        }
+        return cache;
+    }
+
+    private static Object compact(Long[] keys, Long[] values) {
+        final CompletableFutureCache<Long, Long> cache =
+                new EvictableCompletableFutureCache<>(Runnable::run, 1, TimeUnit.HOURS);
+        for (int ind = 0; ind < keys.length; ind++) {
+            final Long value = values[ind];
+            cache.supply(keys[ind], () -> value);
+        }
+        return cache;
+    }
+
+    private static double perEntryFootprint(Object cache, Long[] keys, Long[] values) {
+        final long total = GraphLayout.parseInstance(cache).totalSize();
+        final long data = GraphLayout.parseInstance((Object[]) keys).totalSize()
+                + GraphLayout.parseInstance((Object[]) values).totalSize();
+        return (double) (total - data) / keys.length;
+    }
+}
@@ -18,13 +18,20 @@ package io.jmnarloch.concurrent.cache;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import static junit.framework.Assert.assertNotNull;
@@ -45,7 +52,7 @@ public class EvictableCompletableFutureCacheTest {
 
     private Executor executor;
 
-    private CompletableFutureCache<String, String> instance;
+    private EvictableCompletableFutureCache<String, String> instance;
 
     @Before
     public void setUp() throws Exception {
@@ -205,6 +212,41 @@ public class EvictableCompletableFutureCacheTest {
         }
     }
 
+    @Test
+    public void shouldCacheNullValue() {
+
+        // given
+        final String key = "task";
+        final Supplier<String> supplier = () -> null;
+        instance.supply(key, supplier).join();
+
+        // when
+        final CompletableFuture<String> cached = instance.get(key);
+
+        // then
+        assertNotNull(cached);
+        assertTrue(cached.isDone());
+        assertNull(cached.join());
+    }
+
+    @Test
+    public void shouldCacheFutureValue() {
+
+        // given
+        final String key = "task";
+        final CompletableFuture<String> value = CompletableFuture.completedFuture("completed");
+        final CompletableFutureCache<String, CompletableFuture<String>> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+        cache.supply(key, () -> value).join();
+
+        // when
+        final CompletableFuture<CompletableFuture<String>> cached = cache.get(key);
+
+        // then
+        assertTrue(cached.isDone());
+        assertSame(value, cached.join());
+    }
+
     @Test(expected = NullPointerException.class)
     public void shouldGetRejectNullKey() {
 
@@ -283,6 +325,469 @@ public class EvictableCompletableFutureCacheTest {
         assertTrue(future.isCancelled());
     }
 
+    @Test
+    public void shouldNotCacheResultOfInvalidatedTask() {
+
+        // given
+        final String key = "task";
+        final List<Runnable> tasks = new ArrayList<>();
+        final CompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+        final CompletableFuture<String> future = instance.supply(key, () -> "completed");
+
+        // when
+        instance.invalidate(key);
+        tasks.forEach(Runnable::run);
+
+        // then
+        assertTrue(future.isCancelled());
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void shouldRemoveFutureWhenTaskRejected() {
+
+        // given
+        final String key = "task";
+        final CompletableFutureCache<String, String> cache = new EvictableCompletableFutureCache<>(
+                (command) -> {
+                    throw new RejectedExecutionException();
+                }, 10, TimeUnit.SECONDS);
+
+        // when
+        try {
+            cache.supply(key, () -> "completed");
+            fail();
+        } catch (RejectedExecutionException e) {
+
+            // then
+            assertNull(cache.get(key));
+        }
+    }
+
+    @Test
+    public void shouldCompleteFutureOnExecutorThread() throws Exception {
+
+        // given
+        final String key = "task";
+        final AtomicReference<Thread> completing = new AtomicReference<>();
+        final AtomicReference<EvictableCompletableFutureCache<String, String>> cache = new AtomicReference<>();
+        cache.set(new EvictableCompletableFutureCache<>(
+                (command) -> {
+                    final Thread thread = new Thread(() -> {
+                        cache.get().get(key).thenRun(() -> completing.set(Thread.currentThread()));
+                        command.run();
+                    });
+                    thread.start();
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        throw new RejectedExecutionException(e);
+                    }
+                }, 10, TimeUnit.SECONDS));
+
+        // when
+        final CompletableFuture<String> future = cache.get().supply(key, () -> "completed");
+
+        // then
+        assertEquals("completed", future.get(1, TimeUnit.SECONDS));
+        assertNotNull(completing.get());
+        assertNotSame(Thread.currentThread(), completing.get());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldSupplyRejectNullTag() {
+
+        // when
+        instance.supply("task", () -> "completed", (Object) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldInvalidateByTagRejectNullTag() {
+
+        // when
+        instance.invalidateByTag(null);
+    }
+
+    @Test
+    public void shouldInvalidateByTag() {
+
+        // given
+        final Supplier<String> supplier = () -> "completed";
+        instance.supply("first", supplier, "tenant_1").join();
+        instance.supply("second", supplier, "tenant_1", "tenant_2").join();
+        instance.supply("third", supplier, "tenant_2").join();
+
+        // when
+        instance.invalidateByTag("tenant_1");
+
+        // then
+        assertNull(instance.get("first"));
+        assertNull(instance.get("second"));
+        assertNotNull(instance.get("third"));
+    }
+
+    @Test
+    public void shouldInvalidateByTagInFlightTask() {
+
+        // given
+        final String key = "task";
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final Supplier<String> supplier = () -> {
+            try {
+                countDownLatch.await();
+                return "completed";
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        final CompletableFuture<String> future = instance.supply(key, supplier, "tag");
+
+        // when
+        instance.invalidateByTag("tag");
+
+        // then
+        countDownLatch.countDown();
+        assertTrue(future.isCancelled());
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void shouldNotInvalidateEntryResuppliedWithoutTag() throws InterruptedException {
+
+        // given
+        final String key = "task";
+        final Supplier<String> supplier = () -> "completed";
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 100, TimeUnit.MILLISECONDS);
+        cache.supply(key, supplier, "tag").join();
+        TimeUnit.MILLISECONDS.sleep(200);
+        cache.supply(key, supplier).join();
+
+        // when
+        cache.invalidateByTag("tag");
+
+        // then
+        assertNotNull(cache.get(key));
+    }
+
+    @Test
+    public void shouldCacheResultOfTaskOutlivingDuration() throws InterruptedException {
+
+        // given
+        final String key = "task";
+        final List<Runnable> tasks = new ArrayList<>();
+        final EvictableCompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 100, TimeUnit.MILLISECONDS);
+        final CompletableFuture<String> future = instance.supply(key, () -> "completed", "tag");
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        // when
+        tasks.forEach(Runnable::run);
+
+        // then
+        assertEquals("completed", future.join());
+        assertEquals("completed", instance.get(key).join());
+        instance.invalidateByTag("tag");
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void shouldNotCacheResultOfTaskInvalidatedByInvalidateAll() {
+
+        // given
+        final String key = "task";
+        final List<Runnable> tasks = new ArrayList<>();
+        final EvictableCompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+        final CompletableFuture<String> future = instance.supply(key, () -> "completed");
+
+        // when
+        instance.invalidateAll();
+        tasks.forEach(Runnable::run);
+
+        // then
+        assertEquals("completed", future.join());
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void shouldKeepTagsOfResuppliedEntryWhenInvalidatedTaskCompletes() {
+
+        // given
+        final String key = "task";
+        final List<Runnable> tasks = new ArrayList<>();
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+        cache.supply(key, () -> "invalidated", "tag");
+        cache.invalidate(key);
+        cache.supply(key, () -> "completed", "tag");
+        tasks.forEach(Runnable::run);
+
+        // when
+        cache.invalidateByTag("tag");
+
+        // then
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void shouldSupplyDependentTask() {
+
+        // given
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+
+        // when
+        final CompletableFuture<String> future = cache.supplyDependent("profile",
+                (c) -> c.supply("user", () -> "john").join() + ":" + c.supply("settings", () -> "dark").join());
+
+        // then
+        assertEquals("john:dark", future.join());
+    }
+
+    @Test
+    public void shouldInvalidateDependentWhenDependencyIsInvalidatedDuringRead() {
+
+        // given
+        final List<Runnable> tasks = new ArrayList<>();
+        final AtomicReference<EvictableCompletableFutureCache<String, String>> cache = new AtomicReference<>();
+        cache.set(new EvictableCompletableFutureCache<>((command) -> {
+            tasks.add(command);
+            if (tasks.size() == 2) {
+                cache.get().invalidate("user");
+            }
+        }, 10, TimeUnit.SECONDS));
+        final CompletableFuture<String> future = cache.get().supplyDependent("profile", (c) -> {
+            c.supply("user", () -> "john");
+            return "profile";
+        });
+
+        // when
+        tasks.get(0).run();
+
+        // then
+        assertTrue(future.isCancelled());
+        assertNull(cache.get().get("profile"));
+    }
+
+    @Test
+    public void shouldInvalidateDependentsTransitively() {
+
+        // given
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+        cache.supply("user", () -> "john").join();
+        cache.supplyDependent("profile", (c) -> c.get("user").join() + ":profile").join();
+        cache.supplyDependent("page", (c) -> c.get("profile").join() + ":page").join();
+        cache.supply("other", () -> "other").join();
+
+        // when
+        cache.invalidate("user");
+
+        // then
+        assertNull(cache.get("user"));
+        assertNull(cache.get("profile"));
+        assertNull(cache.get("page"));
+        assertNotNull(cache.get("other"));
+    }
+
+    @Test
+    public void shouldInvalidateDependentsOnReload() throws InterruptedException {
+
+        // given
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 1, TimeUnit.SECONDS);
+        cache.supply("user", () -> "john").join();
+        TimeUnit.MILLISECONDS.sleep(600);
+        cache.supplyDependent("profile", (c) -> c.get("user").join() + ":profile").join();
+        TimeUnit.MILLISECONDS.sleep(600);
+
+        // when
+        cache.supply("user", () -> "jane").join();
+
+        // then
+        assertNull(cache.get("profile"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldPrefetchRejectNonPositiveConcurrency() {
+
+        // given
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+
+        // when
+        cache.prefetch(Arrays.asList("first", "second"), (key) -> key, 0, 10);
+    }
+
+    @Test
+    public void shouldPrefetchKeys() {
+
+        // given
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+        cache.supply("cached", () -> "completed").join();
+
+        // when
+        final PrefetchResult result = cache.prefetch(Arrays.asList("first", "second", "cached", "failed"),
+                (key) -> {
+                    if ("failed".equals(key)) {
+                        throw new RuntimeException("unexpected");
+                    }
+                    return key.toUpperCase();
+                }).join();
+
+        // then
+        assertEquals(2, result.getLoaded());
+        assertEquals(1, result.getSkipped());
+        assertEquals(1, result.getFailed());
+        assertEquals("FIRST", cache.get("first").join());
+        assertEquals("SECOND", cache.get("second").join());
+        assertEquals("completed", cache.get("cached").join());
+        assertNull(cache.get("failed"));
+    }
+
+    @Test
+    public void shouldPrefetchWithBoundedConcurrency() {
+
+        // given
+        final int maxConcurrentLoads = 2;
+        final AtomicInteger concurrentLoads = new AtomicInteger();
+        final AtomicInteger maxObservedLoads = new AtomicInteger();
+        final List<String> keys = new ArrayList<>();
+        for (int ind = 0; ind < 20; ind++) {
+            keys.add(String.format("task_%d", ind));
+        }
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+
+        // when
+        final PrefetchResult result = cache.prefetch(keys, (key) -> {
+            maxObservedLoads.accumulateAndGet(concurrentLoads.incrementAndGet(), Math::max);
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+                return key;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                concurrentLoads.decrementAndGet();
+            }
+        }, maxConcurrentLoads, 1000).join();
+
+        // then
+        assertEquals(keys.size(), result.getLoaded());
+        assertTrue(maxObservedLoads.get() <= maxConcurrentLoads);
+        assertEquals(keys.size(), cache.size());
+    }
+
+    @Test
+    public void shouldPrefetchWithBoundedRate() {
+
+        // given
+        final List<String> keys = Arrays.asList("first", "second", "third", "fourth", "fifth", "sixth");
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+
+        // when
+        final long start = System.nanoTime();
+        cache.prefetch(keys, (key) -> key, keys.size(), 10).join();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // then
+        assertTrue(elapsed >= 400);
+    }
+
+    @Test
+    public void shouldPrefetchOnGivenPacer() {
+
+        // given
+        final List<Runnable> pacer = new ArrayList<>();
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+        final CompletableFuture<PrefetchResult> result =
+                cache.prefetch(Arrays.asList("first", "second"), (key) -> key, 1, 1000, pacer::add);
+        assertFalse(result.isDone());
+
+        // when
+        pacer.forEach(Runnable::run);
+
+        // then
+        assertEquals(2, result.join().getLoaded());
+        assertEquals("first", cache.get("first").join());
+    }
+
+    @Test
+    public void shouldInterruptPacerWhenPrefetchIsCancelled() throws Exception {
+
+        // given
+        final ExecutorService pacer = Executors.newSingleThreadExecutor();
+        final AtomicInteger loads = new AtomicInteger();
+        final EvictableCompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(executor, 10, TimeUnit.SECONDS);
+        final CompletableFuture<PrefetchResult> result = cache.prefetch(
+                Arrays.asList("first", "second", "third"), (key) -> {
+                    loads.incrementAndGet();
+                    return key;
+                }, 1, 0.01, pacer);
+        while (cache.get("first") == null) {
+            Thread.yield();
+        }
+        cache.get("first").join();
+
+        // when
+        result.cancel(true);
+
+        // then
+        assertFalse(pacer.submit(() -> Thread.currentThread().isInterrupted()).get(1, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertNull(cache.get("second"));
+        pacer.shutdown();
+    }
+
+    @Test
+    public void shouldTrackHotKeys() {
+
+        // given
+        final String key = "task";
+        final Supplier<String> supplier = () -> "completed";
+        final List<Runnable> tasks = new ArrayList<>();
+        final HotKeyTracker<String> hotKeys = new HotKeyTracker<>(10);
+        final CompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS, hotKeys);
+
+        // when
+        cache.supply(key, supplier);
+        cache.supply(key, supplier);
+        cache.get(key);
+
+        // then
+        final List<HotKeyTracker.HotKey<String>> topKeys = hotKeys.topKeys();
+        assertEquals(1, topKeys.size());
+        assertEquals(key, topKeys.get(0).getKey());
+        assertEquals(2, topKeys.get(0).getJoins());
+    }
+
+    @Test
+    public void shouldResetHotKeyJoinsOnceLoaded() {
+
+        // given
+        final String key = "task";
+        final List<Runnable> tasks = new ArrayList<>();
+        final HotKeyTracker<String> hotKeys = new HotKeyTracker<>(10);
+        final CompletableFutureCache<String, String> cache =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS, hotKeys);
+        cache.supply(key, () -> "completed");
+        cache.get(key);
+
+        // when
+        tasks.forEach(Runnable::run);
+        cache.get(key);
+
+        // then
+        assertEquals(0, hotKeys.topKeys().get(0).getJoins());
+    }
+
     @Test
     public void shouldInvalidateAllTasks() {
 
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ExpirationWheel} class.
+ *
+ * @author Jakub Narloch
+ */
+public class ExpirationWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+
+    private ExpirationWheel<String> instance;
+
+    @Before
+    public void setUp() throws Exception {
+
+        instance = new ExpirationWheel<>(0, (entry) -> expired.add(entry.key));
+    }
+
+    @Test
+    public void shouldNotExpireEntriesBeforeDeadline() {
+
+        // given
+        instance.schedule(entry("key", 10));
+
+        // when
+        instance.expire(TimeUnit.SECONDS.toNanos(9));
+
+        // then
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void shouldExpireEntriesAfterDeadline() {
+
+        // given
+        instance.schedule(entry("first", 10));
+        instance.schedule(entry("second", 20));
+        instance.schedule(entry("third", 30));
+
+        // when
+        instance.expire(TimeUnit.SECONDS.toNanos(25));
+
+        // then
+        assertEquals(Arrays.asList("first", "second"), expired);
+    }
+
+    @Test
+    public void shouldExpireEntriesBeyondWheel() {
+
+        // given
+        instance.schedule(entry("key", 300));
+        instance.expire(TimeUnit.SECONDS.toNanos(100));
+        instance.expire(TimeUnit.SECONDS.toNanos(200));
+
+        // when
+        instance.expire(TimeUnit.SECONDS.toNanos(302));
+
+        // then
+        assertEquals(Arrays.asList("key"), expired);
+    }
+
+    @Test
+    public void shouldExpireEntriesScheduledPastDeadline() {
+
+        // given
+        instance.expire(TimeUnit.SECONDS.toNanos(20));
+        instance.schedule(entry("key", 10));
+
+        // when
+        instance.expire(TimeUnit.SECONDS.toNanos(22));
+
+        // then
+        assertEquals(Arrays.asList("key"), expired);
+    }
+
+    @Test
+    public void shouldClearEntries() {
+
+        // given
+        instance.schedule(entry("key", 10));
+
+        // when
+        instance.clear();
+        instance.expire(TimeUnit.SECONDS.toNanos(20));
+
+        // then
+        assertTrue(expired.isEmpty());
+    }
+
+    private static ExpirationWheel.Entry<String> entry(String key, long seconds) {
+        return new ExpirationWheel.Entry<>(key, key, TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link HotKeyTracker} class.
+ *
+ * @author Jakub Narloch
+ */
+public class HotKeyTrackerTest {
+
+    private HotKeyTracker<String> instance;
+
+    @Before
+    public void setUp() throws Exception {
+
+        instance = new HotKeyTracker<>(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveCapacity() {
+
+        // when
+        new HotKeyTracker<>(0);
+    }
+
+    @Test
+    public void shouldHaveNoHotKeys() {
+
+        // expect
+        assertTrue(instance.topKeys().isEmpty());
+    }
+
+    @Test
+    public void shouldTrackHottestKeys() {
+
+        // given
+        final Random random = new Random(0);
+        for (int ind = 0; ind < 100000; ind++) {
+            final int sample = random.nextInt(100);
+            if (sample < 30) {
+                instance.recordAccess("hot");
+            } else if (sample < 45) {
+                instance.recordAccess("warm");
+            } else {
+                instance.recordAccess("cold_" + random.nextInt(10000));
+            }
+        }
+
+        // when
+        final List<HotKeyTracker.HotKey<String>> hotKeys = instance.topKeys();
+
+        // then
+        assertEquals(3, hotKeys.size());
+        assertEquals("hot", hotKeys.get(0).getKey());
+        assertEquals("warm", hotKeys.get(1).getKey());
+        assertTrue(hotKeys.get(0).getRate() > hotKeys.get(1).getRate());
+    }
+
+    @Test
+    public void shouldReplaceColdestKey() {
+
+        // given
+        instance.recordAccess("first");
+        instance.recordAccess("first");
+        instance.recordAccess("second");
+        instance.recordAccess("third");
+        instance.recordAccess("third");
+
+        // when
+        instance.recordAccess("fourth");
+        instance.recordAccess("fourth");
+
+        // then
+        final List<String> keys = instance.topKeys().stream()
+                .map(HotKeyTracker.HotKey::getKey)
+                .collect(Collectors.toList());
+        assertEquals(3, keys.size());
+        assertFalse(keys.contains("second"));
+        assertTrue(keys.contains("fourth"));
+    }
+
+    @Test
+    public void shouldTrackHottestKeysFromManyCandidates() {
+
+        // given
+        final HotKeyTracker<String> instance = new HotKeyTracker<>(50);
+        final Random random = new Random(0);
+        for (int ind = 0; ind < 200000; ind++) {
+            final int sample = random.nextInt(100);
+            if (sample < 50) {
+                instance.recordAccess("hot_" + random.nextInt(10));
+            } else {
+                instance.recordAccess("cold_" + random.nextInt(100000));
+            }
+        }
+
+        // when
+        final List<HotKeyTracker.HotKey<String>> hotKeys = instance.topKeys();
+
+        // then
+        assertEquals(50, hotKeys.size());
+        for (int ind = 0; ind < 10; ind++) {
+            assertTrue(hotKeys.get(ind).getKey(), hotKeys.get(ind).getKey().startsWith("hot_"));
+        }
+    }
+
+    @Test
+    public void shouldTrackHottestKeysFromManyThreads() throws InterruptedException {
+
+        // given
+        final Thread[] threads = new Thread[4];
+        for (int ind = 0; ind < threads.length; ind++) {
+            final Random random = new Random(ind);
+            threads[ind] = new Thread(() -> {
+                for (int access = 0; access < 50000; access++) {
+                    instance.recordAccess(random.nextInt(100) < 40 ? "hot" : "cold_" + random.nextInt(10000));
+                }
+            });
+            threads[ind].start();
+        }
+
+        // when
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        final List<HotKeyTracker.HotKey<String>> hotKeys = instance.topKeys();
+        assertEquals(3, hotKeys.size());
+        assertEquals("hot", hotKeys.get(0).getKey());
+    }
+
+    @Test
+    public void shouldCountJoins() {
+
+        // given
+        final String key = "task";
+        instance.recordAccess(key);
+
+        // when
+        instance.recordJoin(key);
+        instance.recordJoin(key);
+
+        // then
+        assertEquals(2, instance.topKeys().get(0).getJoins());
+    }
+
+    @Test
+    public void shouldResetJoinsOnLoad() {
+
+        // given
+        final String key = "task";
+        instance.recordAccess(key);
+        instance.recordJoin(key);
+
+        // when
+        instance.recordLoad(key);
+
+        // then
+        assertEquals(0, instance.topKeys().get(0).getJoins());
+    }
+
+    @Test
+    public void shouldIgnoreJoinsOfUntrackedKeys() {
+
+        // when
+        instance.recordJoin("task");
+
+        // then
+        assertTrue(instance.topKeys().isEmpty());
+    }
+}
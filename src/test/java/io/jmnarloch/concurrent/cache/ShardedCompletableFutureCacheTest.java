@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ShardedCompletableFutureCache} class.
+ *
+ * @author Jakub Narloch
+ */
+public class ShardedCompletableFutureCacheTest {
+
+    private static final int SHARDS = 4;
+
+    private List<ExecutorService> executors;
+
+    private ShardedCompletableFutureCache<String, String> instance;
+
+    @Before
+    public void setUp() throws Exception {
+
+        executors = new ArrayList<>();
+        instance = new ShardedCompletableFutureCache<>(SHARDS, (shard) -> {
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            executors.add(executor);
+            return executor;
+        }, 10, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveShards() {
+
+        // when
+        new ShardedCompletableFutureCache<String, String>(0, (shard) -> Runnable::run, 10, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldSupplyRejectNullKey() {
+
+        // when
+        instance.supply(null, () -> "completed");
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+
+        // expect
+        assertTrue(instance.isEmpty());
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    public void shouldSupplyTasksAcrossShards() {
+
+        // given
+        final int iter = 100;
+
+        // when
+        for (int ind = 0; ind < iter; ind++) {
+            final String key = String.format("task_%d", ind);
+            assertEquals(key, instance.supply(key, () -> key).join());
+        }
+
+        // then
+        assertFalse(instance.isEmpty());
+        assertEquals(iter, instance.size());
+        assertEquals("task_42", instance.get("task_42").join());
+        assertTrue(instance.getOptional("task_42").isPresent());
+    }
+
+    @Test
+    public void shouldLoadKeyOnSingleShardThread() {
+
+        // given
+        final String key = "task";
+        final Supplier<String> supplier = () -> Thread.currentThread().getName();
+
+        // when
+        final String first = instance.supply(key, supplier).join();
+        instance.invalidate(key);
+        final String second = instance.supply(key, supplier).join();
+
+        // then
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void shouldInvalidateTask() {
+
+        // given
+        final String key = "task";
+        instance.supply(key, () -> "completed").join();
+
+        // when
+        instance.invalidate(key);
+
+        // then
+        assertNull(instance.get(key));
+    }
+
+    @Test
+    public void shouldInvalidateByTagAcrossShards() {
+
+        // given
+        final int iter = 100;
+        for (int ind = 0; ind < iter; ind++) {
+            final String key = String.format("task_%d", ind);
+            instance.supply(key, () -> key, ind % 2 == 0 ? "even" : "odd").join();
+        }
+
+        // when
+        instance.invalidateByTag("even");
+
+        // then
+        assertEquals(iter / 2, instance.size());
+        assertNull(instance.get("task_42"));
+        assertNotNull(instance.get("task_43"));
+    }
+
+    @Test
+    public void shouldInvalidateAllTasksAcrossShards() {
+
+        // given
+        final List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int ind = 0; ind < 100; ind++) {
+            final String key = String.format("task_%d", ind);
+            futures.add(instance.supply(key, () -> key));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        // when
+        instance.invalidateAll();
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link TagIndex} class.
+ *
+ * @author Jakub Narloch
+ */
+public class TagIndexTest {
+
+    private TagIndex<String> instance;
+
+    @Before
+    public void setUp() throws Exception {
+
+        instance = new TagIndex<>();
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+
+        // expect
+        assertTrue(instance.isEmpty());
+        assertTrue(instance.keys("tag").isEmpty());
+    }
+
+    @Test
+    public void shouldTagKeys() {
+
+        // when
+        instance.tag("first", new Object[]{"tag", "other"});
+        instance.tag("second", new Object[]{"tag"});
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), instance.keys("tag"));
+        assertEquals(new HashSet<>(Arrays.asList("first")), instance.keys("other"));
+    }
+
+    @Test
+    public void shouldReplaceTags() {
+
+        // given
+        instance.tag("key", new Object[]{"tag"});
+
+        // when
+        instance.tag("key", new Object[]{"other"});
+
+        // then
+        assertTrue(instance.keys("tag").isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("key")), instance.keys("other"));
+    }
+
+    @Test
+    public void shouldRemoveTagsWhenRetaggedWithoutTags() {
+
+        // given
+        instance.tag("key", new Object[]{"tag"});
+
+        // when
+        instance.tag("key", new Object[0]);
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldUntagKey() {
+
+        // given
+        instance.tag("first", new Object[]{"tag"});
+        instance.tag("second", new Object[]{"tag"});
+
+        // when
+        instance.untag("first", instance.tags("first"));
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("second")), instance.keys("tag"));
+    }
+
+    @Test
+    public void shouldNotUntagReplacedTags() {
+
+        // given
+        final Object[] tags = {"tag"};
+        instance.tag("key", tags);
+        instance.tag("key", new Object[]{"tag"});
+
+        // when
+        instance.untag("key", tags);
+
+        // then
+        assertEquals(new HashSet<>(Arrays.asList("key")), instance.keys("tag"));
+    }
+
+    @Test
+    public void shouldReleaseTagsOfUntaggedKeys() {
+
+        // given
+        instance.tag("first", new Object[]{"tag", "other"});
+        instance.tag("second", new Object[]{"tag"});
+
+        // when
+        instance.untag("first", instance.tags("first"));
+        instance.untag("second", instance.tags("second"));
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+
+    @Test
+    public void shouldClearTags() {
+
+        // given
+        instance.tag("key", new Object[]{"tag"});
+
+        // when
+        instance.clear();
+
+        // then
+        assertTrue(instance.isEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2015-2016 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.jmnarloch.concurrent.cache;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the Flight Recorder events emitted by the {@link EvictableCompletableFutureCache} class.
+ *
+ * @author Jakub Narloch
+ */
+public class CacheEventsTest {
+
+    private static final String LOAD = "io.jmnarloch.concurrent.cache.Load";
+
+    private static final String JOIN = "io.jmnarloch.concurrent.cache.Join";
+
+    private static final String EVICTION = "io.jmnarloch.concurrent.cache.Eviction";
+
+    private static final String INVALIDATE_ALL = "io.jmnarloch.concurrent.cache.InvalidateAll";
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private Recording recording;
+
+    private Path dump;
+
+    @Before
+    public void setUp() throws Exception {
+
+        dump = Files.createTempFile("completable-future-cache", ".jfr");
+        recording = new Recording();
+        recording.enable(LOAD);
+        recording.enable(JOIN);
+        recording.enable(EVICTION);
+        recording.enable(INVALIDATE_ALL);
+        recording.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        recording.close();
+        Files.deleteIfExists(dump);
+    }
+
+    @Test
+    public void shouldRecordLoads() throws Exception {
+
+        // given
+        final CompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+
+        // when
+        instance.supply("success", () -> "value");
+        instance.supply("failure", () -> {
+            throw new IllegalStateException();
+        });
+        runTasks();
+
+        // then
+        final List<RecordedEvent> events = events(LOAD);
+        assertEquals(2, events.size());
+        assertEquals("success", events.get(0).getString("key"));
+        assertEquals("SUCCESS", events.get(0).getString("outcome"));
+        assertEquals("failure", events.get(1).getString("key"));
+        assertEquals("FAILURE", events.get(1).getString("outcome"));
+    }
+
+    @Test
+    public void shouldRecordJoins() throws Exception {
+
+        // given
+        final CompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+        instance.supply("key", () -> "value");
+
+        // when
+        final CompletableFuture<String> joined = instance.supply("key", () -> "other");
+        runTasks();
+
+        // then
+        assertEquals("value", joined.join());
+        final List<RecordedEvent> events = events(JOIN);
+        assertEquals(1, events.size());
+        assertEquals("key", events.get(0).getString("key"));
+    }
+
+    @Test
+    public void shouldRecordEvictions() throws Exception {
+
+        // given
+        final CompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 50, TimeUnit.MILLISECONDS);
+        instance.supply("key", () -> "value");
+        runTasks();
+
+        // when
+        Thread.sleep(100);
+        instance.supply("key", () -> "value");
+        runTasks();
+
+        // then
+        final List<RecordedEvent> events = events(EVICTION);
+        assertEquals(1, events.size());
+        assertEquals("key", events.get(0).getString("key"));
+        assertEquals("EXPIRED", events.get(0).getString("cause"));
+    }
+
+    @Test
+    public void shouldRecordInvalidateAll() throws Exception {
+
+        // given
+        final CompletableFutureCache<String, String> instance =
+                new EvictableCompletableFutureCache<>(tasks::add, 10, TimeUnit.SECONDS);
+        instance.supply("first", () -> "value");
+        instance.supply("second", () -> "value");
+        runTasks();
+
+        // when
+        instance.invalidateAll();
+
+        // then
+        final List<RecordedEvent> events = events(INVALIDATE_ALL);
+        assertEquals(1, events.size());
+        assertEquals(2L, events.get(0).getLong("entries"));
+        assertTrue(events(EVICTION).isEmpty());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            recording.dump(dump);
+        }
+        return RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((first, second) -> first.getStartTime().compareTo(second.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}